@@ -29,127 +29,194 @@ import cli.System.WeakReference;
 @ikvm.lang.Internal
 public final class WeakIdentityMap
 {
-    private WeakReference[] keys = new WeakReference[16];
-    private Object[] values = new Object[keys.length];
-
-    public WeakIdentityMap()
+    // The entries are immutable and chained per identity hash bucket.  Writers
+    // replace a whole chain under the lock, readers don't lock and see either
+    // the old or the new chain.  Entries whose key has been collected are
+    // purged from a chain whenever a writer touches it, and from the whole
+    // table before it grows.
+    private static final class Entry
     {
-        for (int i = 0; i < keys.length; i++)
+        final WeakReference key;
+        final int hash;
+        final Object value;
+        final Entry next;
+
+        Entry(WeakReference key, int hash, Object value, Entry next)
         {
-            keys[i] = new WeakReference(null, true);
-            // NOTE we suppress finalization, to make sure the WeakReference continues to work
-            // while the AppDomain is finalizing for unload (note that for this to work,
-            // the code that instantiates us also has to call SuppressFinalize on us.)
-            GC.SuppressFinalize(keys[i]);
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
         }
     }
 
+    private volatile Entry[] table = new Entry[16];
+    private int count;
+
+    public WeakIdentityMap()
+    {
+    }
+
     protected void finalize()
     {
-        for (int i = 0; i < keys.length; i++)
+        Entry[] tab = table;
+        for (int i = 0; i < tab.length; i++)
         {
-            if (keys[i] != null)
+            for (Entry e = tab[i]; e != null; e = e.next)
             {
-                GC.ReRegisterForFinalize(keys[i]);
+                GC.ReRegisterForFinalize(e.key);
             }
         }
     }
 
-    public synchronized Object remove(Object key)
+    private static WeakReference newKey(Object key)
     {
-        for (int i = 0; i < keys.length; i++)
+        WeakReference ref = new WeakReference(key, true);
+        // NOTE we suppress finalization, to make sure the WeakReference continues to work
+        // while the AppDomain is finalizing for unload (note that for this to work,
+        // the code that instantiates us also has to call SuppressFinalize on us.)
+        GC.SuppressFinalize(ref);
+        return ref;
+    }
+
+    private static void releaseKey(WeakReference ref)
+    {
+        // let the finalizer free the GC handle of a key that is no longer in the map
+        GC.ReRegisterForFinalize(ref);
+    }
+
+    private static int hash(Object key)
+    {
+        int h = System.identityHashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private Entry find(Object key)
+    {
+        Entry[] tab = table;
+        int h = hash(key);
+        for (Entry e = tab[h & (tab.length - 1)]; e != null; e = e.next)
         {
-            if (keys[i].get_Target() == key)
+            if (e.hash == h && e.key.get_Target() == key)
             {
-		Object value = values[i];
-		keys[i].set_Target(null);
-		values[i] = null;
-                return value;
+                return e;
             }
         }
         return null;
     }
 
-    // Note that null values are supported, null keys are not
-    public synchronized void put(Object key, Object value)
+    // rebuilds the chain of a bucket without the entry for key and without stale entries,
+    // the entry for key (if any) is added to the front with the new value (unless remove is true)
+    private Object updateBucket(Object key, int h, Object value, boolean remove)
     {
-        if (key == null)
-            throw new NullPointerException();
-        putImpl(key, value, true);
-    }
-
-    private void putImpl(Object key, Object value, boolean tryGC)
-    {
-        int emptySlot = -1;
-        int keySlot = -1;
-        for (int i = 0; i < keys.length; i++)
+        Entry[] tab = table;
+        int index = h & (tab.length - 1);
+        Entry head = null;
+        Entry found = null;
+        for (Entry e = tab[index]; e != null; e = e.next)
         {
-            Object k = keys[i].get_Target();
+            Object k = e.key.get_Target();
             if (k == null)
             {
-                emptySlot = i;
-                values[i] = null;
+                releaseKey(e.key);
+                count--;
             }
             else if (k == key)
             {
-                keySlot = i;
+                found = e;
+            }
+            else
+            {
+                head = new Entry(e.key, e.hash, e.value, head);
             }
         }
-        if (keySlot != -1)
-        {
-            values[keySlot] = value;
-        }
-        else if (emptySlot != -1)
-        {
-            keys[emptySlot].set_Target(key);
-            values[emptySlot] = value;
-        }
-        else
+        if (!remove)
         {
-            if (tryGC)
+            if (found != null)
             {
-                GC.Collect(0);
-                putImpl(key, value, false);
-                return;
+                head = new Entry(found.key, h, value, head);
             }
-            int len = keys.length;
-            WeakReference[] newkeys = new WeakReference[len * 2];
-            Object[] newvalues = new Object[newkeys.length];
-            cli.System.Array.Copy((cli.System.Array)(Object)keys, (cli.System.Array)(Object)newkeys, len);
-            cli.System.Array.Copy((cli.System.Array)(Object)values, (cli.System.Array)(Object)newvalues, len);
-            keys = newkeys;
-            values = newvalues;
-            for (int i = len; i < keys.length; i++)
+            else
             {
-                keys[i] = new WeakReference(null, true);
-                GC.SuppressFinalize(keys[i]);
+                head = new Entry(newKey(key), h, value, head);
+                count++;
             }
-            keys[len].set_Target(key);
-            values[len] = value;
         }
+        else if (found != null)
+        {
+            releaseKey(found.key);
+            count--;
+        }
+        tab[index] = head;
+        // this volatile write publishes the new chain to readers
+        table = tab;
+        return found == null ? null : found.value;
     }
 
-    public synchronized Object get(Object key)
+    private void grow()
     {
-        for (int i = 0; i < keys.length; i++)
+        Entry[] tab = table;
+        // first purge everything that is stale, that may be enough
+        int live = 0;
+        for (int i = 0; i < tab.length; i++)
         {
-            if (keys[i].get_Target() == key)
+            Entry head = null;
+            for (Entry e = tab[i]; e != null; e = e.next)
             {
-                return values[i];
+                if (e.key.get_Target() == null)
+                {
+                    releaseKey(e.key);
+                }
+                else
+                {
+                    head = new Entry(e.key, e.hash, e.value, head);
+                    live++;
+                }
             }
+            tab[i] = head;
         }
-        return null;
+        count = live;
+        if (live >= tab.length / 2)
+        {
+            Entry[] newtab = new Entry[tab.length * 2];
+            for (int i = 0; i < tab.length; i++)
+            {
+                for (Entry e = tab[i]; e != null; e = e.next)
+                {
+                    int index = e.hash & (newtab.length - 1);
+                    newtab[index] = new Entry(e.key, e.hash, e.value, newtab[index]);
+                }
+            }
+            tab = newtab;
+        }
+        table = tab;
     }
 
-    public synchronized boolean containsKey(Object key)
+    public synchronized Object remove(Object key)
     {
-        for (int i = 0; i < keys.length; i++)
+        return updateBucket(key, hash(key), null, true);
+    }
+
+    // Note that null values are supported, null keys are not
+    public synchronized void put(Object key, Object value)
+    {
+        if (key == null)
+            throw new NullPointerException();
+        if (count >= table.length - (table.length >> 2))
         {
-            if (keys[i].get_Target() == key)
-            {
-                return true;
-            }
+            grow();
         }
-        return false;
+        updateBucket(key, hash(key), value, false);
+    }
+
+    public Object get(Object key)
+    {
+        Entry e = find(key);
+        return e == null ? null : e.value;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return find(key) != null;
     }
 }
@@ -2099,7 +2099,7 @@ public final class Class<T> implements java.io.Serializable,
     public Field getDeclaredField(String name)
         throws NoSuchFieldException, SecurityException {
         checkMemberAccess(Member.DECLARED, Reflection.getCallerClass(), true);
-        Field field = searchFields(privateGetDeclaredFields(false), name);
+        Field field = searchDeclaredFields(false, name);
         if (field == null) {
             throw new NoSuchFieldException(name);
         }
@@ -2159,7 +2159,7 @@ public final class Class<T> implements java.io.Serializable,
     public Method getDeclaredMethod(String name, Class<?>... parameterTypes)
         throws NoSuchMethodException, SecurityException {
         checkMemberAccess(Member.DECLARED, Reflection.getCallerClass(), true);
-        Method method = searchMethods(privateGetDeclaredMethods(false), name, parameterTypes);
+        Method method = searchDeclaredMethods(false, name, parameterTypes);
         if (method == null) {
             throw new NoSuchMethodException(getName() + "." + name + argumentTypesToString(parameterTypes));
         }
@@ -2478,6 +2478,14 @@ public final class Class<T> implements java.io.Serializable,
         volatile Field[] declaredPublicFields;
         volatile Method[] declaredPublicMethods;
         volatile Class<?>[] interfaces;
+        // Name indexes of the declared (public) fields and methods, built
+        // lazily for getDeclaredField, getDeclaredMethod, getField and getMethod
+        volatile HashMap<String, Field> declaredFieldIndex;
+        volatile HashMap<String, Field> declaredPublicFieldIndex;
+        volatile HashMap<String, Method[]> declaredMethodIndex;
+        volatile HashMap<String, Method[]> declaredPublicMethodIndex;
+        // Set on use, cleared by the clock sweep of ReflectionDataPins
+        volatile boolean referenced;
 
         // Value of classRedefinedCount when we created this ReflectionData instance
         final int redefinedCount;
@@ -2502,6 +2510,12 @@ public final class Class<T> implements java.io.Serializable,
             reflectionData != null &&
             (rd = reflectionData.get()) != null &&
             rd.redefinedCount == classRedefinedCount) {
+            if (reflectionDataHits != null) {
+                reflectionDataHits.incrementAndGet();
+            }
+            if (reflectionDataPins != null && !rd.referenced) {
+                rd.referenced = true;
+            }
             return rd;
         }
         // else no SoftReference or cleared SoftReference or stale ReflectionData
@@ -2509,6 +2523,40 @@ public final class Class<T> implements java.io.Serializable,
         return newReflectionData(reflectionData, classRedefinedCount);
     }
 
+    // [IKVM] Keeps the ReflectionData of the most recently used classes
+    // strongly reachable, so that it survives the clearing of the
+    // SoftReference under memory pressure.  Classes are evicted with the
+    // clock algorithm: a hit marks the data as referenced, the sweep
+    // gives referenced data a second chance.
+    private static final class ReflectionDataPins {
+        private final ReflectionData<?>[] ring;
+        private int hand;
+
+        ReflectionDataPins(int size) {
+            ring = new ReflectionData<?>[size];
+        }
+
+        synchronized void pin(ReflectionData<?> rd) {
+            for (;;) {
+                ReflectionData<?> old = ring[hand];
+                if (old == null || !old.referenced) {
+                    ring[hand] = rd;
+                    hand = (hand + 1) % ring.length;
+                    return;
+                }
+                old.referenced = false;
+                hand = (hand + 1) % ring.length;
+            }
+        }
+    }
+
+    // Set with -Dikvm.reflect.cacheSize=<number of classes>, null by default
+    private static volatile ReflectionDataPins reflectionDataPins;
+
+    // Set with -Dikvm.reflect.cacheStats=true, printed at exit
+    private static volatile java.util.concurrent.atomic.AtomicLong reflectionDataHits;
+    private static volatile java.util.concurrent.atomic.AtomicLong reflectionDataMisses;
+
     private ReflectionData<T> newReflectionData(SoftReference<ReflectionData<T>> oldReflectionData,
                                                 int classRedefinedCount) {
         if (!useCaches) return null;
@@ -2517,6 +2565,13 @@ public final class Class<T> implements java.io.Serializable,
             ReflectionData<T> rd = new ReflectionData<>(classRedefinedCount);
             // try to CAS it...
             if (Atomic.casReflectionData(this, oldReflectionData, new SoftReference<>(rd))) {
+                if (reflectionDataMisses != null) {
+                    reflectionDataMisses.incrementAndGet();
+                }
+                ReflectionDataPins pins = reflectionDataPins;
+                if (pins != null) {
+                    pins.pin(rd);
+                }
                 return rd;
             }
             // else retry
@@ -2968,6 +3023,69 @@ public final class Class<T> implements java.io.Serializable,
         return null;
     }
 
+    // Minimum number of members before a name index is built
+    private static final int MEMBER_INDEX_THRESHOLD = 8;
+
+    // Like searchFields on privateGetDeclaredFields, but uses the name
+    // index in the ReflectionData for classes with many fields.
+    private Field searchDeclaredFields(boolean publicOnly, String name) {
+        Field[] fields = privateGetDeclaredFields(publicOnly);
+        ReflectionData<T> rd;
+        if (fields.length < MEMBER_INDEX_THRESHOLD || (rd = reflectionData()) == null) {
+            return searchFields(fields, name);
+        }
+        HashMap<String, Field> index = publicOnly ? rd.declaredPublicFieldIndex : rd.declaredFieldIndex;
+        if (index == null) {
+            index = new HashMap<>(fields.length * 2);
+            for (Field f : fields) {
+                // the first one wins, as in searchFields
+                index.putIfAbsent(f.getName(), f);
+            }
+            if (publicOnly) {
+                rd.declaredPublicFieldIndex = index;
+            } else {
+                rd.declaredFieldIndex = index;
+            }
+        }
+        Field res = index.get(name);
+        return (res == null ? res : getReflectionFactory().copyField(res));
+    }
+
+    // Like searchMethods on privateGetDeclaredMethods, but only searches
+    // the methods with the given name for classes with many methods.
+    private Method searchDeclaredMethods(boolean publicOnly, String name,
+                                         Class<?>[] parameterTypes) {
+        Method[] methods = privateGetDeclaredMethods(publicOnly);
+        ReflectionData<T> rd;
+        if (methods.length < MEMBER_INDEX_THRESHOLD || (rd = reflectionData()) == null) {
+            return searchMethods(methods, name, parameterTypes);
+        }
+        HashMap<String, Method[]> index = publicOnly ? rd.declaredPublicMethodIndex : rd.declaredMethodIndex;
+        if (index == null) {
+            HashMap<String, List<Method>> lists = new HashMap<>();
+            for (Method m : methods) {
+                List<Method> list = lists.get(m.getName());
+                if (list == null) {
+                    list = new ArrayList<>(1);
+                    lists.put(m.getName(), list);
+                }
+                list.add(m);
+            }
+            index = new HashMap<>(lists.size() * 2);
+            for (Map.Entry<String, List<Method>> e : lists.entrySet()) {
+                List<Method> list = e.getValue();
+                index.put(e.getKey(), list.toArray(new Method[list.size()]));
+            }
+            if (publicOnly) {
+                rd.declaredPublicMethodIndex = index;
+            } else {
+                rd.declaredMethodIndex = index;
+            }
+        }
+        Method[] candidates = index.get(name);
+        return (candidates == null ? null : searchMethods(candidates, name, parameterTypes));
+    }
+
     private Field getField0(String name) throws NoSuchFieldException {
         // Note: the intent is that the search algorithm this routine
         // uses be equivalent to the ordering imposed by
@@ -2978,7 +3096,7 @@ public final class Class<T> implements java.io.Serializable,
         // class which is being queried.
         Field res;
         // Search declared public fields
-        if ((res = searchFields(privateGetDeclaredFields(true), name)) != null) {
+        if ((res = searchDeclaredFields(true, name)) != null) {
             return res;
         }
         // Direct superinterfaces, recursively
@@ -3051,7 +3169,7 @@ public final class Class<T> implements java.io.Serializable,
         // Must _not_ return root methods
         Method res;
         // Search declared public methods
-        if ((res = searchMethods(privateGetDeclaredMethods(true),
+        if ((res = searchDeclaredMethods(true,
                                  name,
                                  parameterTypes)) != null) {
             if (includeStaticMethods || !Modifier.isStatic(res.getModifiers()))
@@ -3285,6 +3403,31 @@ public final class Class<T> implements java.io.Serializable,
                         useCaches = false;
                     }
 
+                    // [IKVM] optional strongly held reflection cache
+                    val = System.getProperty("ikvm.reflect.cacheSize");
+                    if (val != null) {
+                        try {
+                            int size = Integer.parseInt(val);
+                            if (size > 0) {
+                                reflectionDataPins = new ReflectionDataPins(size);
+                            }
+                        } catch (NumberFormatException _) {
+                        }
+                    }
+                    val = System.getProperty("ikvm.reflect.cacheStats");
+                    if (val != null && val.equals("true")) {
+                        final java.util.concurrent.atomic.AtomicLong hits = new java.util.concurrent.atomic.AtomicLong();
+                        final java.util.concurrent.atomic.AtomicLong misses = new java.util.concurrent.atomic.AtomicLong();
+                        reflectionDataHits = hits;
+                        reflectionDataMisses = misses;
+                        Runtime.getRuntime().addShutdownHook(new Thread() {
+                            public void run() {
+                                System.err.println("Class.reflectionData: " + hits.get() + " hits, "
+                                                   + misses.get() + " misses");
+                            }
+                        });
+                    }
+
                     initted = true;
                     return null;
                 }
@@ -171,6 +171,8 @@ class Thread implements Runnable {
     private boolean timedWait;
     volatile Object parkLock;   // used by get/setParkLock in map.xml
     int parkState;              // used by cmpxchgParkState in map.xml
+    @ikvm.lang.Internal // [IKVM] accessed from java.util.concurrent.locks.LockSupport
+    public int parkSpinLimit;
     /* --- end IKVM specific state --- */
 
     private volatile char  name[];
@@ -198,9 +200,8 @@ class Thread implements Runnable {
     Object inheritedAccessControlContext;
 
     /* For autonumbering anonymous threads. */
-    private static int threadInitNumber;
-    private static synchronized int nextThreadNum() {
-        return threadInitNumber++;
+    private static int nextThreadNum() {
+        return Counters.INSTANCE.nextThreadNum();
     }
 
     /* ThreadLocal values pertaining to this thread. This map is maintained
@@ -230,9 +231,6 @@ class Thread implements Runnable {
      */
     private long tid;
 
-    /* For generating thread ID */
-    private static long threadSeqNumber;
-
     /* Java thread status for tools,
      * initialized to indicate thread 'not yet started'
      */
@@ -240,8 +238,47 @@ class Thread implements Runnable {
     private volatile int threadStatus = 0;
 
 
-    private static synchronized long nextThreadID() {
-        return ++threadSeqNumber;
+    private static long nextThreadID() {
+        return Counters.INSTANCE.nextThreadID();
+    }
+
+    /*
+     * [IKVM] The thread number and ID counters.  These are allocated with
+     * an interlocked compare-and-swap instead of the Thread class monitor,
+     * so that threads can be created concurrently without serializing on
+     * a global lock.  The counters are instance fields of a singleton
+     * because InterlockedCompareAndSet only supports instance fields.
+     */
+    private static final class Counters {
+        static final Counters INSTANCE = new Counters();
+
+        /* For autonumbering anonymous threads. */
+        private volatile int threadInitNumber;
+
+        /* For generating thread ID */
+        private volatile long threadSeqNumber;
+
+        int nextThreadNum() {
+            int num;
+            do {
+                num = threadInitNumber;
+            } while (!casThreadInitNumber(num, num + 1));
+            return num;
+        }
+
+        long nextThreadID() {
+            long id;
+            do {
+                id = threadSeqNumber + 1;
+            } while (!casThreadSeqNumber(id - 1, id));
+            return id;
+        }
+
+        @ikvm.internal.InterlockedCompareAndSet("threadInitNumber")
+        private native boolean casThreadInitNumber(int oldValue, int newValue);
+
+        @ikvm.internal.InterlockedCompareAndSet("threadSeqNumber")
+        private native boolean casThreadSeqNumber(long oldValue, long newValue);
     }
 
     /**
@@ -53,14 +53,19 @@ public abstract class Reference<T>
         else
         {
             weakRef = new cli.System.WeakReference(referent, this instanceof PhantomReference);
-            if (queue != null)
-            {
-                queue.addToActiveList(this);
-            }
             if (this instanceof Cleaner)
             {
+                // a Cleaner is run by its CleanerGuard, the (dummy) queue it is created with is never polled,
+                // so we must not enqueue it there (that would keep every Cleaner and its thunk alive forever)
                 new CleanerGuard();
             }
+            else if (queue != null)
+            {
+                if (!registerReferent(referent, this))
+                {
+                    queue.addToActiveList(this);
+                }
+            }
         }
     }
 
@@ -133,5 +138,21 @@ public abstract class Reference<T>
         return weakRef == null;
     }
 
+    // called by the runtime (on the finalizer thread) after the referent has been collected,
+    // returns false if the referent is still alive (because it was resurrected by its finalizer)
+    final boolean referentCollected()
+    {
+        if (isActive())
+        {
+            return false;
+        }
+        queue.enqueue(this);
+        return true;
+    }
+
+    // makes the runtime call referentCollected() when the referent is collected,
+    // returns false if the runtime doesn't support this (and the queue has to track the reference)
+    private static native boolean registerReferent(Object referent, Reference ref);
+
     static native boolean noclassgc();
 }
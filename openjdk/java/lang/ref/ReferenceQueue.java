@@ -42,7 +42,10 @@ public class ReferenceQueue<T>
         }
     }
 
-    // NOTE a known problem with this approach is that the WeakReference will not be available
+    // NOTE on .NET 4 the runtime notifies a reference (by calling Reference.referentCollected())
+    // when its referent has been collected, so the active list (which is scanned after each GC)
+    // is only used on older frameworks.
+    // A known problem with the active list is that the WeakReference will not be available
     // after we've become only finalizer reachable
     private static class Link<T> extends cli.System.WeakReference {
         Link<T> next;
@@ -136,35 +139,34 @@ public class ReferenceQueue<T>
         synchronized (lock) {
             if (ref.queue != ENQUEUED && ref.queue != NULL) {
                 ref.queue = ENQUEUED;
-                
-                if (ref.isStrongOrNullRef()) {
-                    ref.next = head;
-                    head = ref;
-                    lock.notifyAll();
-                    return true;
+                if (activeHead != null && !ref.isStrongOrNullRef()) {
+                    removeFromActiveList(ref);
                 }
+                ref.next = head;
+                head = ref;
+                lock.notifyAll();
+                return true;
+            }
+        }
+        return false;
+    }
 
-                Link<T> prev = null;
-                Link<T> curr = activeHead;
-            
-                while (curr != null) {
-                    if (curr.get() == ref) {
-                        if (prev == null) {
-                            activeHead = curr.next;
-                        } else {
-                            prev.next = curr.next;
-                        }
-                        ref.next = head;
-                        head = ref;
-                        lock.notifyAll();
-                        return true;
-                    }
-                    prev = curr;
-                    curr = curr.next;
+    private void removeFromActiveList(Reference<T> ref)
+    {
+        Link<T> prev = null;
+        Link<T> curr = activeHead;
+        while (curr != null) {
+            if (curr.get() == ref) {
+                if (prev == null) {
+                    activeHead = curr.next;
+                } else {
+                    prev.next = curr.next;
                 }
+                return;
             }
+            prev = curr;
+            curr = curr.next;
         }
-        return false;
     }
 
     final void addToActiveList(Reference<T> ref)
@@ -26,6 +26,7 @@
 package java.nio;
 
 import java.security.AccessController;
+import java.util.concurrent.atomic.AtomicLong;
 import sun.misc.Unsafe;
 import sun.misc.VM;
 
@@ -650,31 +651,35 @@ class Bits {                            // package-private
     // direct buffer memory.  This value may be changed during VM
     // initialization if it is launched with "-XX:MaxDirectMemorySize=<size>".
     private static volatile long maxMemory = VM.maxDirectMemory();
-    private static volatile long reservedMemory;
-    private static volatile long totalCapacity;
-    private static volatile long count;
-    private static boolean memoryLimitSet = false;
+    private static final AtomicLong reservedMemory = new AtomicLong();
+    private static final AtomicLong totalCapacity = new AtomicLong();
+    private static final AtomicLong count = new AtomicLong();
+    private static volatile boolean memoryLimitSet = false;
+    // [IKVM] the number of reservations since startup, for the statistics
+    private static final AtomicLong reservations = new AtomicLong();
 
     // These methods should be called whenever direct memory is allocated or
     // freed.  They allow the user to control the amount of direct memory
     // which a process may access.  All sizes are specified in bytes.
+    // [IKVM] The counters are updated with compare-and-swap instead of
+    // the Bits class lock, so allocating and freeing direct buffers from
+    // many threads doesn't serialize on a single monitor.
     static void reserveMemory(long size, int cap) {
-        synchronized (Bits.class) {
-            if (!memoryLimitSet && VM.isBooted()) {
-                maxMemory = VM.maxDirectMemory();
-                memoryLimitSet = true;
-            }
-            // -XX:MaxDirectMemorySize limits the total capacity rather than the
-            // actual memory usage, which will differ when buffers are page
-            // aligned.
-            if (cap <= maxMemory - totalCapacity) {
-                reservedMemory += size;
-                totalCapacity += cap;
-                count++;
-                return;
+        if (!memoryLimitSet && VM.isBooted()) {
+            synchronized (Bits.class) {
+                if (!memoryLimitSet) {
+                    maxMemory = VM.maxDirectMemory();
+                    memoryLimitSet = true;
+                    initStats();
+                }
             }
         }
 
+        // optimist!
+        if (tryReserveMemory(size, cap)) {
+            return;
+        }
+
         System.gc();
         try {
             Thread.sleep(100);
@@ -682,22 +687,55 @@ class Bits {                            // package-private
             // Restore interrupt status
             Thread.currentThread().interrupt();
         }
-        synchronized (Bits.class) {
-            if (totalCapacity + cap > maxMemory)
-                throw new OutOfMemoryError("Direct buffer memory");
-            reservedMemory += size;
-            totalCapacity += cap;
-            count++;
+        if (!tryReserveMemory(size, cap))
+            throw new OutOfMemoryError("Direct buffer memory");
+    }
+
+    private static boolean tryReserveMemory(long size, int cap) {
+        // -XX:MaxDirectMemorySize limits the total capacity rather than the
+        // actual memory usage, which will differ when buffers are page
+        // aligned.
+        long totalCap;
+        while (cap <= maxMemory - (totalCap = totalCapacity.get())) {
+            if (totalCapacity.compareAndSet(totalCap, totalCap + cap)) {
+                reservedMemory.addAndGet(size);
+                count.incrementAndGet();
+                reservations.incrementAndGet();
+                return true;
+            }
         }
-
-    }
-
-    static synchronized void unreserveMemory(long size, int cap) {
-        if (reservedMemory > 0) {
-            reservedMemory -= size;
-            totalCapacity -= cap;
-            count--;
-            assert (reservedMemory > -1);
+        return false;
+    }
+
+    static void unreserveMemory(long size, int cap) {
+        long cnt = count.decrementAndGet();
+        long reservedMem = reservedMemory.addAndGet(-size);
+        long totalCap = totalCapacity.addAndGet(-cap);
+        assert cnt >= 0 && reservedMem >= 0 && totalCap >= 0;
+    }
+
+    // [IKVM] -Dikvm.nio.directMemoryStats=true prints the direct memory
+    // usage and the hit rate of the native memory pool at exit
+    private static void initStats() {
+        boolean stats = AccessController.doPrivileged(
+            new sun.security.action.GetBooleanAction("ikvm.nio.directMemoryStats")).booleanValue();
+        if (stats) {
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    long allocations = sun.misc.NativeMemoryPool.getAllocationCount();
+                    long hits = sun.misc.NativeMemoryPool.getHitCount();
+                    System.err.println("Direct memory: " + reservations.get() + " buffers allocated, "
+                        + count.get() + " live, "
+                        + reservedMemory.get() + " bytes reserved, "
+                        + totalCapacity.get() + " bytes capacity");
+                    if (sun.misc.NativeMemoryPool.ENABLED) {
+                        System.err.println("Native memory pool: " + allocations + " allocations, "
+                            + hits + " from the pool ("
+                            + (allocations == 0 ? 0 : hits * 100 / allocations) + "%), "
+                            + sun.misc.NativeMemoryPool.getPooledBytes() + " bytes pooled");
+                    }
+                }
+            });
         }
     }
 
@@ -716,15 +754,15 @@ class Bits {                            // package-private
                         }
                         @Override
                         public long getCount() {
-                            return Bits.count;
+                            return Bits.count.get();
                         }
                         @Override
                         public long getTotalCapacity() {
-                            return Bits.totalCapacity;
+                            return Bits.totalCapacity.get();
                         }
                         @Override
                         public long getMemoryUsed() {
-                            return Bits.reservedMemory;
+                            return Bits.reservedMemory.get();
                         }
                     };
                 }
@@ -272,7 +272,8 @@ public final class AccessController {
         LazyContext parent;
         CallerID callerID;
         AccessControlContext context;
-        final cli.System.Diagnostics.StackTrace stackTrace = new cli.System.Diagnostics.StackTrace(1);
+        // null if there was no SecurityManager when the thread was created
+        cli.System.Diagnostics.StackTrace stackTrace;
     }
 
     @ikvm.lang.Internal
@@ -284,6 +285,11 @@ public final class AccessController {
         }
         LazyContext lc = new LazyContext();
         lc.parent = (LazyContext)parent;
+        // Walking the stack is expensive and the context is rarely evaluated, so without
+        // a SecurityManager we only record the doPrivileged caller (if any) below.
+        if (System.getSecurityManager() != null) {
+            lc.stackTrace = new cli.System.Diagnostics.StackTrace(1);
+        }
         if (privileged_stack_top != null) {
             lc.callerID = privileged_stack_top.callerID;
             lc.context = privileged_stack_top.context;
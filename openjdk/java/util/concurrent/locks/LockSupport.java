@@ -35,6 +35,8 @@
 
 package java.util.concurrent.locks;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Basic thread blocking primitives for creating locks and other
  * synchronization classes.
@@ -129,9 +131,48 @@ public class LockSupport {
 
     // these native methods are all implemented in map.xml
     private static native int cmpxchgParkState(Thread t, int newValue, int comparand);
+    private static native int getParkState(Thread t);
     private static native Object getParkLock(Thread t);
     private static native void setParkLock(Thread t, Object obj);
 
+    // Spinning only pays off if the unparking thread can run meanwhile.
+    private static final boolean PARK_SPIN =
+        Runtime.getRuntime().availableProcessors() > 1;
+    // Bounds of the per-thread spin limit, which doubles when a permit
+    // arrives while spinning and halves when the thread had to block.
+    private static final int PARK_SPIN_INITIAL = 64;
+    private static final int PARK_SPIN_MIN = 16;
+    private static final int PARK_SPIN_MAX = 4096;
+    // Rough upper bound of the time a single spin iteration takes.  Timed
+    // parks with less time left than this don't spin at all, and spinning
+    // checks the clock every PARK_SPIN_CHECK iterations.
+    private static final long PARK_SPIN_NANOS = 1000;
+    private static final int PARK_SPIN_CHECK = 8;
+
+    // -Dikvm.park.stats=true counts parks and prints them at exit
+    private static final boolean STATS =
+        java.security.AccessController.doPrivileged(
+            new sun.security.action.GetBooleanAction("ikvm.park.stats")).booleanValue();
+    private static final AtomicLong parks = new AtomicLong();
+    private static final AtomicLong spinParks = new AtomicLong();
+    private static final AtomicLong blockedParks = new AtomicLong();
+    private static final AtomicLong unparks = new AtomicLong();
+    private static final AtomicLong unparkNotifies = new AtomicLong();
+
+    static {
+        if (STATS) {
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    System.err.println("LockSupport: " + parks.get() + " parks, "
+                        + spinParks.get() + " satisfied by spinning, "
+                        + blockedParks.get() + " blocked, "
+                        + unparks.get() + " unparks, "
+                        + unparkNotifies.get() + " needed a notify");
+                }
+            });
+        }
+    }
+
     /**
      * Makes available the permit for the given thread, if it
      * was not already available.  If the thread was blocked on
@@ -146,11 +187,15 @@ public class LockSupport {
     public static void unpark(Thread thread) {
         if (thread != null)
         {
+            if (STATS)
+                unparks.incrementAndGet();
             if (cmpxchgParkState(thread, PARK_STATE_PERMIT, PARK_STATE_RUNNING) == PARK_STATE_PARKED)
             {
                 if (cmpxchgParkState(thread, PARK_STATE_RUNNING, PARK_STATE_PARKED) == PARK_STATE_PARKED)
                 {
                     // thread is currently blocking, so we have to release it
+                    if (STATS)
+                        unparkNotifies.incrementAndGet();
                     Object lock = getParkLock(thread);
                     synchronized (lock)
                     {
@@ -163,12 +208,39 @@ public class LockSupport {
 
     private static void parkImpl(Thread currentThread, boolean deadline, long nanos)
     {
+        if (STATS)
+            parks.incrementAndGet();
         if (cmpxchgParkState(currentThread, PARK_STATE_RUNNING, PARK_STATE_PERMIT) == PARK_STATE_PERMIT)
         {
             // we consumed a permit
             return;
         }
 
+        if (PARK_SPIN)
+        {
+            boolean timed = deadline || nanos != 0;
+            long remaining = deadline ? nanos - System.currentTimeMillis() * 1000000 : nanos;
+            if (!timed || remaining >= PARK_SPIN_NANOS)
+            {
+                long start = timed ? System.nanoTime() : 0;
+                if (spinForPermit(currentThread, timed, start + remaining))
+                {
+                    if (STATS)
+                        spinParks.incrementAndGet();
+                    return;
+                }
+                if (timed && !deadline)
+                {
+                    // (the deadline case recomputes the remaining time below)
+                    nanos -= System.nanoTime() - start;
+                    if (nanos <= 0)
+                        return;
+                }
+            }
+        }
+        if (STATS)
+            blockedParks.incrementAndGet();
+
         Object lock = getParkLock(currentThread);
         if (lock == null)
         {
@@ -204,6 +276,45 @@ public class LockSupport {
         }
     }
 
+    // Waits a bounded, self-tuning time for a permit before parkImpl
+    // blocks, so that short handoffs don't take the monitor on both sides.
+    // A timed park never spins past spinDeadline (a System.nanoTime()
+    // value) and doesn't yield, because a yield can give up a whole
+    // timeslice.
+    // Returns true if the permit was consumed or the thread is interrupted.
+    private static boolean spinForPermit(Thread t, boolean timed, long spinDeadline)
+    {
+        int limit = t.parkSpinLimit;
+        if (limit == 0)
+            limit = PARK_SPIN_INITIAL;
+        for (int i = 0; i < limit; i++)
+        {
+            if (getParkState(t) == PARK_STATE_PERMIT
+                && cmpxchgParkState(t, PARK_STATE_RUNNING, PARK_STATE_PERMIT) == PARK_STATE_PERMIT)
+            {
+                t.parkSpinLimit = Math.min(limit * 2, PARK_SPIN_MAX);
+                return true;
+            }
+            if (t.isInterrupted())
+                return true;
+            if (timed)
+            {
+                // stop before the next PARK_SPIN_CHECK iterations could overrun the deadline,
+                // running out of time says nothing about the handoff, so the limit is left alone
+                if (i % PARK_SPIN_CHECK == 0
+                    && spinDeadline - System.nanoTime() < PARK_SPIN_CHECK * PARK_SPIN_NANOS)
+                    return false;
+                cli.System.Threading.Thread.SpinWait(20);
+            }
+            else if (i < limit / 2)
+                cli.System.Threading.Thread.SpinWait(20);
+            else
+                Thread.yield();
+        }
+        t.parkSpinLimit = Math.max(limit / 2, PARK_SPIN_MIN);
+        return false;
+    }
+
     /**
      * Disables the current thread for thread scheduling purposes unless the
      * permit is available.
@@ -160,6 +160,16 @@ public class Adler32 implements Checksum
    * @param len the number of bytes to use for this update
    */
   public void update (byte[] buf, int off, int len)
+  {
+    if (off < 0 || len < 0 || off > buf.length - len)
+      throw new ArrayIndexOutOfBoundsException();
+    adler = update(adler, buf, off, len);
+  }
+
+  /** The number of bytes that can be summed before s2 might overflow. */
+  private static final int NMAX = 3800;
+
+  private static int update (int adler, byte[] buf, int off, int len)
   {
     //(By Per Bothner)
     int s1 = adler & 0xffff;
@@ -170,10 +180,21 @@ public class Adler32 implements Checksum
         // We can defer the modulo operation:
         // s1 maximally grows from 65521 to 65521 + 255 * 3800
         // s2 maximally grows by 3800 * median(s1) = 2090079800 < 2^31
-        int n = 3800;
+        int n = NMAX;
         if (n > len)
           n = len;
         len -= n;
+        for (; n >= 8; n -= 8, off += 8)
+          {
+            s1 += buf[off] & 0xFF;     s2 += s1;
+            s1 += buf[off + 1] & 0xFF; s2 += s1;
+            s1 += buf[off + 2] & 0xFF; s2 += s1;
+            s1 += buf[off + 3] & 0xFF; s2 += s1;
+            s1 += buf[off + 4] & 0xFF; s2 += s1;
+            s1 += buf[off + 5] & 0xFF; s2 += s1;
+            s1 += buf[off + 6] & 0xFF; s2 += s1;
+            s1 += buf[off + 7] & 0xFF; s2 += s1;
+          }
         while (--n >= 0)
           {
             s1 = s1 + (buf[off++] & 0xFF);
@@ -192,14 +213,75 @@ public class Adler32 implements Checksum
       s2 = (s2 + s1) % BASE;
     }*/
     
-    adler = (s2 << 16) | s1;
+    return (s2 << 16) | s1;
   }
 
+  /**
+   * Returns the checksum of two concatenated byte sequences, given the
+   * checksums of both sequences and the length of the second one.
+   */
+  static int combine (int adler1, int adler2, long len2)
+  {
+    long rem = len2 % BASE;
+    long sum1 = adler1 & 0xffff;
+    long sum2 = (rem * sum1) % BASE;
+    sum1 += (adler2 & 0xffff) + BASE - 1;
+    sum2 += (adler1 >>> 16) + (adler2 >>> 16) + BASE - rem;
+    if (sum1 >= BASE)
+      sum1 -= BASE;
+    if (sum1 >= BASE)
+      sum1 -= BASE;
+    if (sum2 >= 2 * BASE)
+      sum2 -= 2 * BASE;
+    if (sum2 >= BASE)
+      sum2 -= BASE;
+    return (int) ((sum2 << 16) | sum1);
+  }
+
+  /**
+   * Updates the checksum with the remaining bytes of the buffer.  Heap
+   * buffers are processed in place, direct buffers are read eight bytes
+   * at a time without copying them to a temporary array.
+   */
   public void update(java.nio.ByteBuffer buffer)
   {
-    byte[] buf = new byte[buffer.remaining()];
-    buffer.get(buf);
-    update(buf, 0, buf.length);
+    int pos = buffer.position();
+    int limit = buffer.limit();
+    if (pos >= limit)
+      return;
+    if (buffer.hasArray())
+      {
+        adler = update(adler, buffer.array(), buffer.arrayOffset() + pos, limit - pos);
+      }
+    else
+      {
+        java.nio.ByteBuffer le = buffer.duplicate().order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        int s1 = adler & 0xffff;
+        int s2 = adler >>> 16;
+        while (pos < limit)
+          {
+            int n = Math.min(NMAX, limit - pos);
+            int end = pos + n;
+            for (; end - pos >= 8; pos += 8)
+              {
+                long v = le.getLong(pos);
+                for (int i = 0; i < 8; i++, v >>>= 8)
+                  {
+                    s1 += (int) v & 0xFF;
+                    s2 += s1;
+                  }
+              }
+            for (; pos < end; pos++)
+              {
+                s1 += le.get(pos) & 0xFF;
+                s2 += s1;
+              }
+            s1 %= BASE;
+            s2 %= BASE;
+          }
+        adler = (s2 << 16) | s1;
+      }
+    buffer.position(limit);
   }
 
   /**
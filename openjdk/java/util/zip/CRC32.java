@@ -62,13 +62,18 @@ public class CRC32 implements Checksum
   /** The crc data checksum so far. */
   private int crc = 0;
 
-  /** The fast CRC table. Computed once when the CRC32 class is loaded. */
-  private static int[] crc_table = make_crc_table();
+  /**
+   * The slicing-by-8 tables, stored back to back.  The first 256 entries
+   * are the classic byte-at-a-time table, entry n of table k is the CRC
+   * of byte n followed by k zero bytes.  Computed once when the CRC32
+   * class is loaded.
+   */
+  private static final int[] crc_table = make_crc_table();
 
-  /** Make the table for a fast CRC. */
+  /** Make the tables for a fast CRC. */
   private static int[] make_crc_table ()
   {
-    int[] crc_table = new int[256];
+    int[] crc_table = new int[8 * 256];
     for (int n = 0; n < 256; n++)
       {
         int c = n;
@@ -81,9 +86,28 @@ public class CRC32 implements Checksum
           }
         crc_table[n] = c;
       }
+    for (int n = 256; n < 8 * 256; n++)
+      {
+        int c = crc_table[n - 256];
+        crc_table[n] = crc_table[c & 0xff] ^ (c >>> 8);
+      }
     return crc_table;
   }
 
+  /**
+   * Advances the (inverted) crc c over eight bytes, given as two little
+   * endian ints.
+   */
+  private static int update8 (int c, int lo, int hi)
+  {
+    final int[] t = crc_table;
+    c ^= lo;
+    return t[7 * 256 + (c & 0xff)] ^ t[6 * 256 + ((c >>> 8) & 0xff)]
+      ^ t[5 * 256 + ((c >>> 16) & 0xff)] ^ t[4 * 256 + (c >>> 24)]
+      ^ t[3 * 256 + (hi & 0xff)] ^ t[2 * 256 + ((hi >>> 8) & 0xff)]
+      ^ t[1 * 256 + ((hi >>> 16) & 0xff)] ^ t[hi >>> 24];
+  }
+
   /**
    * Returns the CRC32 data checksum computed so far.
    */
@@ -119,10 +143,25 @@ public class CRC32 implements Checksum
    */
   public void update (byte[] buf, int off, int len)
   {
-    int c = ~crc;
+    if (off < 0 || len < 0 || off > buf.length - len)
+      throw new ArrayIndexOutOfBoundsException();
+    crc = ~update(~crc, buf, off, len);
+  }
+
+  private static int update (int c, byte[] buf, int off, int len)
+  {
+    final int[] t = crc_table;
+    for (; len >= 8; len -= 8, off += 8)
+      {
+        int lo = (buf[off] & 0xff) | (buf[off + 1] & 0xff) << 8
+          | (buf[off + 2] & 0xff) << 16 | buf[off + 3] << 24;
+        int hi = (buf[off + 4] & 0xff) | (buf[off + 5] & 0xff) << 8
+          | (buf[off + 6] & 0xff) << 16 | buf[off + 7] << 24;
+        c = update8(c, lo, hi);
+      }
     while (--len >= 0)
-      c = crc_table[(c ^ buf[off++]) & 0xff] ^ (c >>> 8);
-    crc = ~c;
+      c = t[(c ^ buf[off++]) & 0xff] ^ (c >>> 8);
+    return c;
   }
 
   /**
@@ -130,10 +169,34 @@ public class CRC32 implements Checksum
    */
   public void update (byte[] buf) { update(buf, 0, buf.length); }
 
+  /**
+   * Adds the remaining bytes of the buffer to the data checksum.  Heap
+   * buffers are processed in place, direct buffers are read eight bytes
+   * at a time without copying them to a temporary array.
+   */
   public void update(java.nio.ByteBuffer buffer)
   {
-    byte[] buf = new byte[buffer.remaining()];
-    buffer.get(buf);
-    update(buf, 0, buf.length);
+    int pos = buffer.position();
+    int limit = buffer.limit();
+    if (pos >= limit)
+      return;
+    if (buffer.hasArray())
+      {
+        crc = ~update(~crc, buffer.array(), buffer.arrayOffset() + pos, limit - pos);
+      }
+    else
+      {
+        java.nio.ByteBuffer le = buffer.duplicate().order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        int c = ~crc;
+        for (; limit - pos >= 8; pos += 8)
+          {
+            long v = le.getLong(pos);
+            c = update8(c, (int) v, (int) (v >>> 32));
+          }
+        for (; pos < limit; pos++)
+          c = crc_table[(c ^ le.get(pos)) & 0xff] ^ (c >>> 8);
+        crc = ~c;
+      }
+    buffer.position(limit);
   }
 }
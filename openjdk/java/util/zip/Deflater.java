@@ -167,6 +167,9 @@ public class Deflater
   /** The deflater engine. */
   private DeflaterEngine engine;
 
+  /** Compresses on the common pool instead of the engine, or null. */
+  private ParallelDeflater parallel;
+
   /**
    * Creates a new deflater with default compression level.
    */
@@ -205,6 +208,8 @@ public class Deflater
     pending = new DeflaterPending();
     engine = new DeflaterEngine(pending);
     this.noHeader = nowrap;
+    if (ParallelDeflater.ENABLED)
+      parallel = new ParallelDeflater(nowrap);
     setStrategy(DEFAULT_STRATEGY);
     setLevel(lvl);
     reset();
@@ -221,6 +226,8 @@ public class Deflater
     totalOut = 0;
     pending.reset();
     engine.reset();
+    if (parallel != null)
+      parallel.reset();
   }
   
   /**
@@ -235,6 +242,11 @@ public class Deflater
   {
     engine = null;
     pending = null;
+    if (parallel != null)
+      {
+        parallel.reset();
+        parallel = null;
+      }
     state = CLOSED_STATE;
   }
 
@@ -244,6 +256,8 @@ public class Deflater
    */
   public int getAdler()
   {
+    if (parallel != null)
+      return parallel.getAdler();
     return engine.getAdler();
   }
 
@@ -252,7 +266,7 @@ public class Deflater
    */
   public int getTotalIn()
   {
-    return (int) engine.getTotalIn();
+    return (int) getBytesRead();
   }
 
   /** 
@@ -261,6 +275,8 @@ public class Deflater
    */
   public long getBytesRead()
   {
+    if (parallel != null)
+      return parallel.getTotalIn();
     return engine.getTotalIn();
   }
 
@@ -304,6 +320,8 @@ public class Deflater
    */
   public boolean finished()
   {
+    if (parallel != null)
+      return parallel.finished();
     return state == FINISHED_STATE && pending.isFlushed();
   }
 
@@ -316,6 +334,8 @@ public class Deflater
    */
   public boolean needsInput()
   {
+    if (parallel != null)
+      return parallel.needsInput();
     return engine.needsInput();
   }
 
@@ -352,7 +372,10 @@ public class Deflater
         throw new NullPointerException();
     if (off < 0 || len < 0 || off > input.length - len)
         throw new ArrayIndexOutOfBoundsException();
-    engine.setInput(input, off, len);
+    if (parallel != null)
+      parallel.setInput(input, off, len);
+    else
+      engine.setInput(input, off, len);
   }
 
   /** 
@@ -374,6 +397,8 @@ public class Deflater
       {
         level = lvl;
         engine.setLevel(lvl);
+        if (parallel != null)
+          parallel.setLevel(lvl);
       }
   }
 
@@ -390,6 +415,8 @@ public class Deflater
         && stgy != HUFFMAN_ONLY)
       throw new IllegalArgumentException();
     engine.setStrategy(stgy);
+    if (parallel != null)
+      parallel.setStrategy(stgy);
   }
 
   /**
@@ -444,21 +471,18 @@ public class Deflater
     if (state == CLOSED_STATE)
       throw new IllegalStateException("Deflater closed");
 
+    if (parallel != null)
+      {
+        int count = parallel.deflate(output, offset, length, flush,
+                                     (state & IS_FINISHING) != 0);
+        totalOut += count;
+        return count;
+      }
+
     if (state < BUSY_STATE)
       {
         /* output header */
-        int header = (DEFLATED + 
-                      ((DeflaterConstants.MAX_WBITS - 8) << 4)) << 8;
-        int level_flags = (level - 1) >> 1;
-        if (level_flags < 0 || level_flags > 3) 
-          level_flags = 3;
-        header |= level_flags << 6;
-        if ((state & IS_SETDICT) != 0)
-          /* Dictionary was set */
-          header |= DeflaterConstants.PRESET_DICT;
-        header += 31 - (header % 31);
-
-        pending.writeShortMSB(header);
+        pending.writeShortMSB(makeHeader(level, (state & IS_SETDICT) != 0));
         if ((state & IS_SETDICT) != 0)
           {
             int chksum = engine.getAdler();
@@ -565,5 +589,27 @@ public class Deflater
 
     state = SETDICT_STATE;
     engine.setDictionary(dict, offset, length);
+    if (parallel != null)
+      parallel.setDictionary(dict, offset, length);
+  }
+
+  /**
+   * Computes the zlib header for the given level.
+   * @param lvl the compression level.
+   * @param setDict whether a dictionary was set.
+   */
+  static int makeHeader(int lvl, boolean setDict)
+  {
+    int header = (DEFLATED + 
+                  ((DeflaterConstants.MAX_WBITS - 8) << 4)) << 8;
+    int level_flags = (lvl - 1) >> 1;
+    if (level_flags < 0 || level_flags > 3) 
+      level_flags = 3;
+    header |= level_flags << 6;
+    if (setDict)
+      /* Dictionary was set */
+      header |= DeflaterConstants.PRESET_DICT;
+    header += 31 - (header % 31);
+    return header;
   }
 }
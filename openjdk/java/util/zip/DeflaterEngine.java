@@ -445,7 +445,8 @@ final class DeflaterEngine implements DeflaterConstants
         /* Block may move out of window */
         || flush)
       {
-        boolean lastBlock = finish;
+        /* Only the block that takes the end of the input is the last one. */
+        boolean lastBlock = finish && flush;
         if (storedLen > DeflaterConstants.MAX_BLOCK_SIZE)
           {
             storedLen = DeflaterConstants.MAX_BLOCK_SIZE;
@@ -457,7 +458,10 @@ final class DeflaterEngine implements DeflaterConstants
 
         huffman.flushStoredBlock(window, blockStart, storedLen, lastBlock);
         blockStart += storedLen;
-        return !lastBlock;
+        /* Once everything is flushed, stop instead of emitting more
+         * empty stored blocks.
+         */
+        return !lastBlock && !(flush && blockStart == strstart);
       }
     return true;
   }
@@ -68,34 +68,6 @@ package java.util.zip;
  */
 public class Inflater
 {
-  /* Copy lengths for literal codes 257..285 */
-  private static final int CPLENS[] = 
-  { 
-    3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
-    35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258
-  };
-  
-  /* Extra bits for literal codes 257..285 */  
-  private static final int CPLEXT[] = 
-  { 
-    0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
-    3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0
-  };
-
-  /* Copy offsets for distance codes 0..29 */
-  private static final int CPDIST[] = {
-    1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
-    257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145,
-    8193, 12289, 16385, 24577
-  };
-  
-  /* Extra bits for distance codes */
-  private static final int CPDEXT[] = {
-    0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
-    7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 
-    12, 12, 13, 13
-  };
-
   /* This are the state in which the inflater can be.  */
   private static final int DECODE_HEADER           = 0;
   private static final int DECODE_DICT             = 1;
@@ -137,6 +109,12 @@ public class Inflater
    */
   private boolean isLastBlock;
 
+  /**
+   * The maximum number of bits a literal/length code, a distance code
+   * and their extra bits can take together.
+   */
+  private static final int MAX_PAIR_BITS = 15 + 5 + 15 + 13;
+
   /**
    * The total number of inflated bytes.
    */
@@ -333,7 +311,14 @@ public class Inflater
             len -= more;
           }
         else
-          break;
+          {
+            /* The caller's buffer is full.  Give the bytes that were read
+             * ahead into the bit buffer back to the input, so that
+             * needsInput() stays false while they are undecoded.
+             */
+            input.unreadBytes();
+            break;
+          }
       }
     return count;
   }
@@ -498,6 +483,99 @@ public class Inflater
     return false;
   }
 
+  /**
+   * Decodes huffman encoded symbols while the input holds enough bits
+   * for a complete literal/length and distance pair, so that neither
+   * input checks nor state transitions are needed per symbol.
+   * @return the free space left in the output window, or -1 if the
+   * current block ended.
+   * @exception DataFormatException if deflated stream is invalid.  
+   */
+  private int decodeFast (int free) throws DataFormatException
+  {
+    StreamManipulator input = this.input;
+    OutputWindow outputWindow = this.outputWindow;
+    int[] litlen = litlenTree.tree;
+    int[] dist = distTree.tree;
+    byte[] out = outputWindow.window;
+    /* Keep the bit buffer in locals and refill it with whole bytes,
+     * only as long as at least eight input bytes remain.
+     */
+    byte[] window = input.window;
+    int start = input.window_start;
+    int end = input.window_end;
+    long buffer = input.buffer;
+    int bits = input.bits_in_buffer;
+    try
+      {
+        while (free >= 258)
+          {
+            if (bits < MAX_PAIR_BITS)
+              {
+                if (end - start < 8)
+                  break;
+                do
+                  {
+                    buffer |= (long) (window[start++] & 0xff) << bits;
+                    bits += 8;
+                  }
+                while (bits <= 56);
+              }
+
+            int entry = litlen[(int) buffer & 511];
+            if ((entry & InflaterHuffmanTree.KIND_MASK) == InflaterHuffmanTree.SUBTABLE)
+              entry = litlen[(entry >>> 16)
+                             | (((int) buffer & ((1 << (entry & 15)) - 1)) >> 9)];
+            buffer >>>= entry & 15;
+            bits -= entry & 15;
+
+            int kind = entry & InflaterHuffmanTree.KIND_MASK;
+            if (kind == InflaterHuffmanTree.LITERAL)
+              {
+                out[outputWindow.window_end] = (byte) (entry >>> 16);
+                outputWindow.window_end = (outputWindow.window_end + 1)
+                  & OutputWindow.WINDOW_MASK;
+                outputWindow.window_filled++;
+                free--;
+                continue;
+              }
+            if (kind == InflaterHuffmanTree.END)
+              return -1;
+            if (kind != InflaterHuffmanTree.COPY)
+              throw new DataFormatException("Illegal rep length code");
+
+            int extra = (entry >> 4) & 15;
+            int length = (entry >>> 16) + ((int) buffer & ((1 << extra) - 1));
+            buffer >>>= extra;
+            bits -= extra;
+
+            entry = dist[(int) buffer & 511];
+            if ((entry & InflaterHuffmanTree.KIND_MASK) == InflaterHuffmanTree.SUBTABLE)
+              entry = dist[(entry >>> 16)
+                           | (((int) buffer & ((1 << (entry & 15)) - 1)) >> 9)];
+            if ((entry & InflaterHuffmanTree.KIND_MASK) != InflaterHuffmanTree.COPY)
+              throw new DataFormatException("Illegal rep dist code");
+            buffer >>>= entry & 15;
+            bits -= entry & 15;
+
+            extra = (entry >> 4) & 15;
+            int distance = (entry >>> 16) + ((int) buffer & ((1 << extra) - 1));
+            buffer >>>= extra;
+            bits -= extra;
+
+            outputWindow.repeat(length, distance);
+            free -= length;
+          }
+        return free;
+      }
+    finally
+      {
+        input.window_start = start;
+        input.buffer = buffer;
+        input.bits_in_buffer = bits;
+      }
+  }
+
   /**
    * Decodes the huffman encoded symbols in the input stream.
    * @return false if more input is needed, true if output window is
@@ -509,40 +587,44 @@ public class Inflater
     int free = outputWindow.getFreeSpace();
     while (free >= 258)
       {
-        int symbol;
+        int entry;
         switch (mode)
           {
           case DECODE_HUFFMAN:
-            /* This is the inner loop so it is optimized a bit */
-            while (((symbol = litlenTree.getSymbol(input)) & ~0xff) == 0)
+            free = decodeFast(free);
+            if (free < 0)
               {
-                outputWindow.write(symbol);
+                /* end of block */
+                distTree = null;
+                litlenTree = null;
+                mode = DECODE_BLOCKS;
+                return true;
+              }
+            if (free < 258)
+              return true;
+
+            /* Close to the end of the input, decode one symbol at a time */
+            while (((entry = litlenTree.getEntry(input))
+                    & InflaterHuffmanTree.KIND_MASK)
+                   == InflaterHuffmanTree.LITERAL)
+              {
+                outputWindow.write(entry >>> 16);
                 if (--free < 258)
                   return true;
               } 
-            if (symbol < 257)
-              {
-                if (symbol < 0)
-                  return false;
-                else
-                  {
-                    /* symbol == 256: end of block */
-                    distTree = null;
-                    litlenTree = null;
-                    mode = DECODE_BLOCKS;
-                    return true;
-                  }
-              }
-                
-            try
-              {
-                repLength = CPLENS[symbol - 257];
-                neededBits = CPLEXT[symbol - 257];
-              }
-            catch (ArrayIndexOutOfBoundsException ex)
+            if (entry < 0)
+              return false;
+            if ((entry & InflaterHuffmanTree.KIND_MASK) == InflaterHuffmanTree.END)
               {
-                throw new DataFormatException("Illegal rep length code");
+                distTree = null;
+                litlenTree = null;
+                mode = DECODE_BLOCKS;
+                return true;
               }
+            if ((entry & InflaterHuffmanTree.KIND_MASK) != InflaterHuffmanTree.COPY)
+              throw new DataFormatException("Illegal rep length code");
+            repLength = entry >>> 16;
+            neededBits = (entry >> 4) & 15;
             /* fall through */
           case DECODE_HUFFMAN_LENBITS:
             if (neededBits > 0)
@@ -557,18 +639,13 @@ public class Inflater
             mode = DECODE_HUFFMAN_DIST;
             /* fall through */
           case DECODE_HUFFMAN_DIST:
-            symbol = distTree.getSymbol(input);
-            if (symbol < 0)
+            entry = distTree.getEntry(input);
+            if (entry < 0)
               return false;
-            try 
-              {
-                repDist = CPDIST[symbol];
-                neededBits = CPDEXT[symbol];
-              }
-            catch (ArrayIndexOutOfBoundsException ex)
-              {
-                throw new DataFormatException("Illegal rep dist code");
-              }
+            if ((entry & InflaterHuffmanTree.KIND_MASK) != InflaterHuffmanTree.COPY)
+              throw new DataFormatException("Illegal rep dist code");
+            repDist = entry >>> 16;
+            neededBits = (entry >> 4) & 15;
             /* fall through */
           case DECODE_HUFFMAN_DISTBITS:
             if (neededBits > 0)
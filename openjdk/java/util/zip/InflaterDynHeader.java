@@ -191,13 +191,13 @@ class InflaterDynHeader
   {
     byte[] litlenLens = new byte[lnum];
     System.arraycopy(litdistLens, 0, litlenLens, 0, lnum);
-    return new InflaterHuffmanTree(litlenLens);
+    return new InflaterHuffmanTree(litlenLens, InflaterHuffmanTree.LITLEN);
   }
 
   public InflaterHuffmanTree buildDistTree() throws DataFormatException
   {
     byte[] distLens = new byte[dnum];
     System.arraycopy(litdistLens, lnum, distLens, 0, dnum);
-    return new InflaterHuffmanTree(distLens);
+    return new InflaterHuffmanTree(distLens, InflaterHuffmanTree.DISTANCE);
   }
 }
@@ -37,11 +37,66 @@ exception statement from your version. */
 
 package java.util.zip;
 
+/**
+ * A two level lookup table for a Huffman code.  The first level is
+ * indexed by the next 9 bits of input, codes longer than that continue
+ * in a second level table.
+ *
+ * Every table entry is an int that already contains everything needed
+ * to act on the code: bits 0-3 hold the code length, bits 4-7 the number
+ * of extra bits that follow the code, bits 8-10 the kind of the entry
+ * and bits 16-31 its value.  For the literal/length alphabet the value
+ * of a length code is the base length, for the distance alphabet it is
+ * the base distance, so that a length/distance pair is resolved without
+ * any further table lookups.
+ */
 class InflaterHuffmanTree
 {
   private static final int MAX_BITLEN = 15;
 
-  private short[] tree;
+  /* The alphabets this tree can decode */
+  static final int PLAIN    = 0;
+  static final int LITLEN   = 1;
+  static final int DISTANCE = 2;
+
+  /* The kinds of table entries */
+  static final int KIND_MASK = 7 << 8;
+  static final int LITERAL   = 0 << 8;
+  static final int COPY      = 1 << 8;
+  static final int END       = 2 << 8;
+  static final int INVALID   = 3 << 8;
+  static final int SUBTABLE  = 4 << 8;
+
+  /* Copy lengths for literal codes 257..285 */
+  private static final int CPLENS[] = 
+  { 
+    3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+    35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258
+  };
+  
+  /* Extra bits for literal codes 257..285 */  
+  private static final int CPLEXT[] = 
+  { 
+    0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+    3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0
+  };
+
+  /* Copy offsets for distance codes 0..29 */
+  private static final int CPDIST[] = {
+    1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+    257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145,
+    8193, 12289, 16385, 24577
+  };
+  
+  /* Extra bits for distance codes */
+  private static final int CPDEXT[] = {
+    0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+    7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 
+    12, 12, 13, 13
+  };
+
+  /* Accessed directly by Inflater.decodeFast(). */
+  int[] tree;
 
   static InflaterHuffmanTree defLitLenTree, defDistTree;
 
@@ -59,13 +114,13 @@ class InflaterHuffmanTree
           codeLengths[i++] = 7;
         while (i < 288)
           codeLengths[i++] = 8;
-        defLitLenTree = new InflaterHuffmanTree(codeLengths);
+        defLitLenTree = new InflaterHuffmanTree(codeLengths, LITLEN);
 
         codeLengths = new byte[32];
         i = 0;
         while (i < 32)
           codeLengths[i++] = 5;
-        defDistTree = new InflaterHuffmanTree(codeLengths);
+        defDistTree = new InflaterHuffmanTree(codeLengths, DISTANCE);
       }
     catch (DataFormatException ex)
       {
@@ -81,10 +136,48 @@ class InflaterHuffmanTree
    */
   InflaterHuffmanTree(byte[] codeLengths) throws DataFormatException
   {
-    buildTree(codeLengths);
+    this(codeLengths, PLAIN);
+  }
+
+  /**
+   * Constructs a Huffman tree from the array of code lengths.
+   *
+   * @param codeLengths the array of code lengths
+   * @param alphabet PLAIN, LITLEN or DISTANCE
+   */
+  InflaterHuffmanTree(byte[] codeLengths, int alphabet)
+    throws DataFormatException
+  {
+    buildTree(codeLengths, alphabet);
+  }
+
+  /**
+   * Returns the table entry for a symbol, without the code length.
+   */
+  private static int makeEntry(int symbol, int alphabet)
+  {
+    switch (alphabet)
+      {
+      case LITLEN:
+        if (symbol < 256)
+          return (symbol << 16) | LITERAL;
+        if (symbol == 256)
+          return END;
+        if (symbol - 257 < CPLENS.length)
+          return (CPLENS[symbol - 257] << 16) | COPY
+            | (CPLEXT[symbol - 257] << 4);
+        return INVALID;
+      case DISTANCE:
+        if (symbol < CPDIST.length)
+          return (CPDIST[symbol] << 16) | COPY | (CPDEXT[symbol] << 4);
+        return INVALID;
+      default:
+        return (symbol << 16) | LITERAL;
+      }
   }
 
-  private void buildTree(byte[] codeLengths) throws DataFormatException
+  private void buildTree(byte[] codeLengths, int alphabet)
+    throws DataFormatException
   {
     int[] blCount = new int[MAX_BITLEN+1];
     int[] nextCode = new int[MAX_BITLEN+1];
@@ -115,10 +208,15 @@ class InflaterHuffmanTree
     if (code != 65536 && max > 1)
       throw new DataFormatException("incomplete dynamic bit lengths tree");
 
+    /* Codes that are not part of an incomplete tree decode as INVALID
+     * with a code length of zero.
+     */
+    tree = new int[treeSize];
+    java.util.Arrays.fill(tree, INVALID);
+
     /* Now create and fill the extra tables from longest to shortest
      * bit len.  This way the sub trees will be aligned.
      */
-    tree = new short[treeSize];
     int treePtr = 512;
     for (int bits = MAX_BITLEN; bits >= 10; bits--)
       {
@@ -128,7 +226,7 @@ class InflaterHuffmanTree
         for (int i = start; i < end; i += 1 << 7)
           {
             tree[DeflaterHuffman.bitReverse(i)]
-              = (short) ((-treePtr << 4) | bits);
+              = (treePtr << 16) | SUBTABLE | bits;
             treePtr += 1 << (bits-9);
           }
       }
@@ -140,11 +238,12 @@ class InflaterHuffmanTree
           continue;
         code = nextCode[bits];
         int revcode = DeflaterHuffman.bitReverse(code);
+        int entry = makeEntry(i, alphabet) | bits;
         if (bits <= 9)
           {
             do
               {
-                tree[revcode] = (short) ((i << 4) | bits);
+                tree[revcode] = entry;
                 revcode += 1 << bits;
               }
             while (revcode < 512);
@@ -153,10 +252,10 @@ class InflaterHuffmanTree
           {
             int subTree = tree[revcode & 511];
             int treeLen = 1 << (subTree & 15);
-            subTree = -(subTree >> 4);
+            subTree >>>= 16;
             do
               {
-                tree[subTree | (revcode >> 9)] = (short) ((i << 4) | bits);
+                tree[subTree | (revcode >> 9)] = entry;
                 revcode += 1 << bits;
               }
             while (revcode < treeLen);
@@ -166,55 +265,63 @@ class InflaterHuffmanTree
   }
 
   /**
-   * Reads the next symbol from input.  The symbol is encoded using the
-   * huffman tree.
+   * Reads the next code from input and returns its table entry.  The
+   * code bits are dropped from the input, the extra bits are not.
    * @param input the input source.
-   * @return the next symbol, or -1 if not enough input is available.
+   * @return the table entry, or -1 if not enough input is available.
    */
-  int getSymbol(StreamManipulator input) throws DataFormatException
+  int getEntry(StreamManipulator input)
   {
-    int lookahead, symbol;
+    int lookahead, entry;
     if ((lookahead = input.peekBits(9)) >= 0)
       {
-        if ((symbol = tree[lookahead]) >= 0)
-          {
-            input.dropBits(symbol & 15);
-            return symbol >> 4;
-          }
-        int subtree = -(symbol >> 4);
-        int bitlen = symbol & 15;
-        if ((lookahead = input.peekBits(bitlen)) >= 0)
+        entry = tree[lookahead];
+        if ((entry & KIND_MASK) == SUBTABLE)
           {
-            symbol = tree[subtree | (lookahead >> 9)];
-            input.dropBits(symbol & 15);
-            return symbol >> 4;
-          }
-        else
-          {
-            int bits = input.getAvailableBits();
-            lookahead = input.peekBits(bits);
-            symbol = tree[subtree | (lookahead >> 9)];
-            if ((symbol & 15) <= bits)
+            int subtree = entry >>> 16;
+            int bitlen = entry & 15;
+            if ((lookahead = input.peekBits(bitlen)) >= 0)
+              entry = tree[subtree | (lookahead >> 9)];
+            else
               {
-                input.dropBits(symbol & 15);
-                return symbol >> 4;
+                int bits = input.getAvailableBits();
+                lookahead = input.peekBits(bits);
+                entry = tree[subtree | (lookahead >> 9)];
+                if ((entry & 15) > bits)
+                  return -1;
               }
-            else
-              return -1;
           }
+        input.dropBits(entry & 15);
+        return entry;
       }
     else
       {
         int bits = input.getAvailableBits();
         lookahead = input.peekBits(bits);
-        symbol = tree[lookahead];
-        if (symbol >= 0 && (symbol & 15) <= bits)
+        entry = tree[lookahead];
+        if ((entry & KIND_MASK) != SUBTABLE && (entry & 15) <= bits)
           {
-            input.dropBits(symbol & 15);
-            return symbol >> 4;
+            input.dropBits(entry & 15);
+            return entry;
           }
         else
           return -1;
       }
   }
+
+  /**
+   * Reads the next symbol from input.  The symbol is encoded using the
+   * huffman tree.  Only valid for trees of the PLAIN alphabet.
+   * @param input the input source.
+   * @return the next symbol, or -1 if not enough input is available.
+   */
+  int getSymbol(StreamManipulator input) throws DataFormatException
+  {
+    int entry = getEntry(input);
+    if (entry < 0)
+      return -1;
+    if ((entry & KIND_MASK) == INVALID)
+      throw new DataFormatException("invalid code");
+    return entry >>> 16;
+  }
 }
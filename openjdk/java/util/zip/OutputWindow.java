@@ -48,12 +48,13 @@ package java.util.zip;
  */
 class OutputWindow
 {
-  private static final int WINDOW_SIZE = 1 << 15;
-  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+  static final int WINDOW_SIZE = 1 << 15;
+  static final int WINDOW_MASK = WINDOW_SIZE - 1;
 
-  private byte[] window = new byte[WINDOW_SIZE]; //The window is 2^15 bytes
-  private int window_end  = 0;
-  private int window_filled = 0;
+  /* These fields are accessed directly by Inflater.decodeFast(). */
+  final byte[] window = new byte[WINDOW_SIZE]; //The window is 2^15 bytes
+  int window_end  = 0;
+  int window_filled = 0;
 
   public void write(int abyte)
   {
@@ -63,13 +64,19 @@ class OutputWindow
     window_end &= WINDOW_MASK;
   }
 
+  /* Copies with wrap around, in chunks that neither cross the end of
+   * the window nor are longer than the distance.
+   */
   private void slowRepeat(int rep_start, int len, int dist)
   {
-    while (len-- > 0)
+    while (len > 0)
       {
-        window[window_end++] = window[rep_start++];
-        window_end &= WINDOW_MASK;
-        rep_start &= WINDOW_MASK;
+        int n = Math.min(Math.min(len, dist),
+                         WINDOW_SIZE - Math.max(rep_start, window_end));
+        System.arraycopy(window, rep_start, window, window_end, n);
+        window_end = (window_end + n) & WINDOW_MASK;
+        rep_start = (rep_start + n) & WINDOW_MASK;
+        len -= n;
       }
   }
 
@@ -87,13 +94,33 @@ class OutputWindow
             System.arraycopy(window, rep_start, window, window_end, len);
             window_end += len;
           }
-        else
+        else if (len < 32)
           {
-            /* We have to copy manually, since the repeat pattern overlaps.
-             */
             while (len-- > 0)
               window[window_end++] = window[rep_start++];
           }
+        else if (dist == 1)
+          {
+            java.util.Arrays.fill(window, window_end, window_end + len,
+                                  window[rep_start]);
+            window_end += len;
+          }
+        else
+          {
+            /* The repeat pattern overlaps.  Every copied chunk extends
+             * the pattern, so the chunks can double in size.
+             */
+            int chunk = dist;
+            while (len > chunk)
+              {
+                System.arraycopy(window, rep_start, window, window_end, chunk);
+                window_end += chunk;
+                len -= chunk;
+                chunk <<= 1;
+              }
+            System.arraycopy(window, rep_start, window, window_end, len);
+            window_end += len;
+          }
       }
     else
       slowRepeat(rep_start, len, dist);
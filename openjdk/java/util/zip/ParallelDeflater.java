@@ -0,0 +1,398 @@
+/*
+  Copyright (C) 2026 IKVM.NET contributors
+
+  This software is provided 'as-is', without any express or implied
+  warranty.  In no event will the authors be held liable for any damages
+  arising from the use of this software.
+
+  Permission is granted to anyone to use this software for any purpose,
+  including commercial applications, and to alter it and redistribute it
+  freely, subject to the following restrictions:
+
+  1. The origin of this software must not be misrepresented; you must not
+     claim that you wrote the original software. If you use this software
+     in a product, an acknowledgment in the product documentation would be
+     appreciated but is not required.
+  2. Altered source versions must be plainly marked as such, and must not be
+     misrepresented as being the original software.
+  3. This notice may not be removed or altered from any source distribution.
+
+*/
+package java.util.zip;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import sun.security.action.GetBooleanAction;
+
+/**
+ * Compresses the input of a Deflater in independent blocks on the common
+ * ForkJoinPool.  Every block is compressed by its own DeflaterEngine,
+ * primed with the preceding 32K of input as dictionary, and ends on a
+ * byte boundary with an empty stored block (or with the final block), so
+ * that the compressed blocks can simply be concatenated into a single
+ * deflate stream.  The adler checksums of the blocks are combined in
+ * order.
+ *
+ * Enabled for all Deflater instances with the ikvm.zip.parallelDeflate
+ * system property, on machines with more than one processor.
+ */
+final class ParallelDeflater
+{
+  /** Only worth it if there is more than one worker to compress with. */
+  static final boolean ENABLED =
+    java.security.AccessController.doPrivileged(
+      new GetBooleanAction("ikvm.zip.parallelDeflate")).booleanValue()
+    && ForkJoinPool.getCommonPoolParallelism() > 1;
+
+  /** The amount of input compressed by a single task. */
+  private static final int BLOCK_SIZE = 128 * 1024;
+
+  /** The amount of preceding input used as dictionary for a block. */
+  private static final int DICT_SIZE = DeflaterConstants.WSIZE;
+
+  /** The maximum number of blocks that are compressed or waiting. */
+  private static final int MAX_PENDING =
+    2 * ForkJoinPool.getCommonPoolParallelism() + 1;
+
+  private static final byte[] EMPTY = new byte[0];
+
+  /** The result of compressing one block. */
+  private static final class Chunk
+  {
+    final byte[] data;
+    final int adler;
+    final int inputLength;
+
+    Chunk(byte[] data, int adler, int inputLength)
+    {
+      this.data = data;
+      this.adler = adler;
+      this.inputLength = inputLength;
+    }
+  }
+
+  private final boolean noHeader;
+  private int level;
+  private int strategy;
+
+  /** The preset dictionary, or null. */
+  private byte[] presetDict;
+  private boolean headerWritten;
+
+  /** The input given to setInput() that is not yet copied to a block. */
+  private byte[] inputBuf;
+  private int inputOff;
+  private int inputEnd;
+
+  /** The block that is being filled. */
+  private byte[] block;
+  private int blockLen;
+
+  /** The last DICT_SIZE bytes of input before the current block. */
+  private final byte[] history = new byte[DICT_SIZE];
+  private int historyLen;
+
+  /** The submitted blocks, in stream order. */
+  private final ArrayDeque<ForkJoinTask<Chunk>> tasks =
+    new ArrayDeque<ForkJoinTask<Chunk>>();
+
+  /** The compressed bytes that are being handed out. */
+  private byte[] out = EMPTY;
+  private int outPos;
+
+  private long totalIn;
+  private int adler;
+  private boolean finalSubmitted;
+  private boolean done;
+
+  ParallelDeflater(boolean noHeader)
+  {
+    this.noHeader = noHeader;
+    reset();
+  }
+
+  void reset()
+  {
+    for (ForkJoinTask<Chunk> task : tasks)
+      task.cancel(false);
+    tasks.clear();
+    presetDict = null;
+    headerWritten = noHeader;
+    inputBuf = null;
+    inputOff = inputEnd = 0;
+    block = null;
+    blockLen = 0;
+    historyLen = 0;
+    out = EMPTY;
+    outPos = 0;
+    totalIn = 0;
+    adler = 1;
+    finalSubmitted = false;
+    done = false;
+  }
+
+  void setLevel(int level)
+  {
+    this.level = level;
+  }
+
+  void setStrategy(int strategy)
+  {
+    this.strategy = strategy;
+  }
+
+  void setDictionary(byte[] dict, int offset, int length)
+  {
+    presetDict = new byte[length];
+    System.arraycopy(dict, offset, presetDict, 0, length);
+    appendHistory(presetDict, 0, length);
+  }
+
+  void setInput(byte[] buf, int off, int len)
+  {
+    inputBuf = buf;
+    inputOff = off;
+    inputEnd = off + len;
+  }
+
+  boolean needsInput()
+  {
+    return inputOff == inputEnd;
+  }
+
+  boolean finished()
+  {
+    return done && outPos == out.length;
+  }
+
+  long getTotalIn()
+  {
+    return totalIn;
+  }
+
+  /**
+   * Returns the adler checksum of all input copied so far.  This has to
+   * wait for the blocks that are still being compressed.
+   */
+  int getAdler()
+  {
+    if (!headerWritten && presetDict != null)
+      {
+        Adler32 dictAdler = new Adler32();
+        dictAdler.update(presetDict);
+        return (int) dictAdler.getValue();
+      }
+    int value = adler;
+    for (ForkJoinTask<Chunk> task : tasks)
+      {
+        Chunk chunk = task.join();
+        value = Adler32.combine(value, chunk.adler, chunk.inputLength);
+      }
+    if (blockLen > 0)
+      {
+        Adler32 tail = new Adler32();
+        tail.update(block, 0, blockLen);
+        value = Adler32.combine(value, (int) tail.getValue(), blockLen);
+      }
+    return value;
+  }
+
+  /**
+   * Copies compressed data to output.  Blocks only when the stream is
+   * flushed or finished, or when no more input can be accepted before a
+   * compressed block is taken out.
+   */
+  int deflate(byte[] output, int offset, int length, int flush,
+              boolean finishing)
+  {
+    if (!headerWritten)
+      {
+        headerWritten = true;
+        int header = Deflater.makeHeader(level, presetDict != null);
+        if (presetDict != null)
+          {
+            Adler32 dictAdler = new Adler32();
+            dictAdler.update(presetDict);
+            int chksum = (int) dictAdler.getValue();
+            out = new byte[] { (byte) (header >> 8), (byte) header,
+                               (byte) (chksum >> 24), (byte) (chksum >> 16),
+                               (byte) (chksum >> 8), (byte) chksum };
+          }
+        else
+          out = new byte[] { (byte) (header >> 8), (byte) header };
+        outPos = 0;
+      }
+
+    int count = 0;
+    for (;;)
+      {
+        int n = Math.min(length, out.length - outPos);
+        System.arraycopy(out, outPos, output, offset, n);
+        outPos += n;
+        offset += n;
+        length -= n;
+        count += n;
+        if (length == 0 || done)
+          return count;
+
+        fillBlocks();
+        if (inputOff == inputEnd)
+          {
+            if (finishing && !finalSubmitted)
+              {
+                submitBlock(true);
+                finalSubmitted = true;
+              }
+            else if (flush != Deflater.NO_FLUSH)
+              {
+                if (blockLen > 0)
+                  submitBlock(false);
+                if (flush == Deflater.FULL_FLUSH)
+                  historyLen = 0;
+              }
+          }
+
+        ForkJoinTask<Chunk> head = tasks.peekFirst();
+        if (head == null)
+          {
+            if (finalSubmitted)
+              {
+                done = true;
+                if (!noHeader)
+                  out = new byte[] { (byte) (adler >> 24), (byte) (adler >> 16),
+                                     (byte) (adler >> 8), (byte) adler };
+                else
+                  out = EMPTY;
+                outPos = 0;
+                continue;
+              }
+            return count;
+          }
+        if (!head.isDone() && inputOff == inputEnd && !finishing
+            && flush == Deflater.NO_FLUSH)
+          return count;
+
+        tasks.removeFirst();
+        Chunk chunk = head.join();
+        adler = Adler32.combine(adler, chunk.adler, chunk.inputLength);
+        out = chunk.data;
+        outPos = 0;
+      }
+  }
+
+  /**
+   * Moves input into blocks and submits the full ones, as long as there
+   * is room for more pending blocks.
+   */
+  private void fillBlocks()
+  {
+    while (inputOff < inputEnd && tasks.size() < MAX_PENDING)
+      {
+        if (block == null)
+          block = new byte[BLOCK_SIZE];
+        int n = Math.min(inputEnd - inputOff, BLOCK_SIZE - blockLen);
+        System.arraycopy(inputBuf, inputOff, block, blockLen, n);
+        inputOff += n;
+        blockLen += n;
+        totalIn += n;
+        if (blockLen == BLOCK_SIZE)
+          submitBlock(false);
+      }
+  }
+
+  private void submitBlock(final boolean last)
+  {
+    final byte[] dict = historyLen == 0 ? null
+      : java.util.Arrays.copyOf(history, historyLen);
+    final byte[] data = block == null ? EMPTY : block;
+    final int len = blockLen;
+    final int level = this.level;
+    final int strategy = this.strategy;
+    appendHistory(data, 0, len);
+    block = null;
+    blockLen = 0;
+
+    Callable<Chunk> job = new Callable<Chunk>() {
+      public Chunk call()
+      {
+        return compress(dict, data, len, level, strategy, last);
+      }
+    };
+    // Without other pending work there is nothing to overlap with.
+    if (last && tasks.isEmpty())
+      {
+        ForkJoinTask<Chunk> task = ForkJoinTask.adapt(job);
+        task.invoke();
+        tasks.addLast(task);
+      }
+    else
+      tasks.addLast(ForkJoinPool.commonPool().submit(job));
+  }
+
+  private void appendHistory(byte[] buf, int off, int len)
+  {
+    if (len >= DICT_SIZE)
+      {
+        System.arraycopy(buf, off + len - DICT_SIZE, history, 0, DICT_SIZE);
+        historyLen = DICT_SIZE;
+        return;
+      }
+    int keep = Math.min(historyLen, DICT_SIZE - len);
+    System.arraycopy(history, historyLen - keep, history, 0, keep);
+    System.arraycopy(buf, off, history, keep, len);
+    historyLen = keep + len;
+  }
+
+  /**
+   * Compresses one block with a private engine.  Unless this is the last
+   * block, the output ends with an empty stored block, which aligns it to
+   * a byte boundary without ending the stream.
+   */
+  static Chunk compress(byte[] dict, byte[] data, int len, int level,
+                        int strategy, boolean last)
+  {
+    DeflaterPending pending = new DeflaterPending();
+    DeflaterEngine engine = new DeflaterEngine(pending);
+    engine.setStrategy(strategy);
+    engine.setLevel(level);
+    if (dict != null)
+      engine.setDictionary(dict, 0, dict.length);
+    engine.setInput(data, 0, len);
+
+    byte[] buf = new byte[Math.max(len / 2, 1024)];
+    int count = 0;
+    boolean more = true;
+    for (;;)
+      {
+        for (;;)
+          {
+            count += pending.flush(buf, count, buf.length - count);
+            if (pending.isFlushed())
+              break;
+            buf = java.util.Arrays.copyOf(buf, buf.length * 2);
+          }
+        if (!more)
+          break;
+        if (!engine.deflate(true, last))
+          {
+            more = false;
+            if (!last)
+              {
+                pending.writeBits(DeflaterConstants.STORED_BLOCK << 1, 3);
+                pending.alignToByte();
+                pending.writeShort(0);
+                pending.writeShort(0xffff);
+              }
+            else
+              pending.alignToByte();
+          }
+      }
+
+    Adler32 adler = new Adler32();
+    adler.update(data, 0, len);
+    return new Chunk(java.util.Arrays.copyOf(buf, count),
+                     (int) adler.getValue(), len);
+  }
+}
@@ -45,13 +45,22 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import sun.security.action.GetBooleanAction;
 import static java.util.zip.ZipConstants64.*;
 
 /**
@@ -83,6 +92,15 @@ public class ZipFile implements ZipConstants, Closeable
    */
   static final int ENDNRD =  4;
 
+  /**
+   * When set (via the ikvm.zip.mmap system property), archives are mapped
+   * into memory and entry streams read from the mapping without taking
+   * the lock on <code>raf</code>.
+   */
+  private static final boolean useMappedFiles =
+    java.security.AccessController.doPrivileged(
+      new GetBooleanAction("ikvm.zip.mmap")).booleanValue();
+
   // Name of this zip file.
   private final String name;
 
@@ -92,8 +110,29 @@ public class ZipFile implements ZipConstants, Closeable
   // File from which zip entries are read.
   private final RandomAccessFile raf;
 
-  // The entries of this zip file when initialized and not yet closed.
-  private LinkedHashMap<String, ZipEntry> entries;
+  // Read-only mapping of the whole file, or null if reads go through raf.
+  private final MappedByteBuffer mapped;
+
+  // The raw central directory, from which entries are decoded on demand.
+  private byte[] cen;
+
+  // One element per central directory record, in directory order.  The
+  // high 32 bits hold the hash code of the entry name, the low 32 bits the
+  // offset of the record in cen (-1 for entries that have been hidden).
+  private long[] cenEntries;
+
+  // Number of valid elements in cenEntries.
+  private int cenCount;
+
+  // Number of visible entries (cenCount minus the hidden ones).
+  private int visibleCount;
+
+  // Open addressing hash table mapping name hashes to cenEntries index + 1.
+  // Zero marks an empty slot.
+  private int[] table;
+
+  // Class stub entries synthesized for ikvmc generated jars, or null.
+  private LinkedHashMap<String, ZipEntry> stubs;
 
   private boolean closed = false;
   final boolean hasLocHeader;
@@ -192,13 +231,17 @@ public class ZipFile implements ZipConstants, Closeable
     this.name = file.getPath();
     this.charset = charset;
     this.hasLocHeader = raf.length() >= 4 && raf.readInt() == (int)((LOCSIG << 24) | ((LOCSIG & 0xFF00) << 8) | ((LOCSIG & 0xFF0000) >> 8) | (LOCSIG >> 24));
+    this.mapped = useMappedFiles ? mapFile(raf) : null;
 
     boolean valid = false;
 
     try 
       {
         readEntries();
-        ClassStubZipEntry.expandIkvmClasses(this, entries);
+        LinkedHashMap<String, ZipEntry> classStubs = new LinkedHashMap<String, ZipEntry>();
+        ClassStubZipEntry.expandIkvmClasses(this, classStubs);
+        if (!classStubs.isEmpty())
+          stubs = classStubs;
         valid = true;
       }
     catch (EOFException _)
@@ -220,6 +263,30 @@ public class ZipFile implements ZipConstants, Closeable
       }
   }
 
+  /**
+   * Maps the complete archive read-only.  Returns null when the file
+   * can't be mapped (e.g. it is larger than 2GB), in which case all reads
+   * fall back to <code>raf</code>.
+   *
+   * The mapping is not explicitly unmapped on close, because streams
+   * handed out earlier may still be reading from it on other threads.
+   * It is released when the buffer is garbage collected.
+   */
+  private static MappedByteBuffer mapFile(RandomAccessFile raf)
+  {
+    try
+      {
+        long length = raf.length();
+        if (length == 0 || length > Integer.MAX_VALUE)
+          return null;
+        return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+      }
+    catch (IOException _)
+      {
+        return null;
+      }
+  }
+
   /**
    * Checks if file is closed and throws an exception.
    */
@@ -230,9 +297,9 @@ public class ZipFile implements ZipConstants, Closeable
   }
 
   /**
-   * Read the central directory of a zip file and fill the entries
-   * array.  This is called exactly once when first needed. It is called
-   * while holding the lock on <code>raf</code>.
+   * Read the central directory of a zip file and build the entry index.
+   * Only the record boundaries and name hashes are computed here, the
+   * entries themselves are decoded when they are requested.
    *
    * @exception IOException if a i/o error occured.
    * @exception ZipException if the central directory is malformed 
@@ -272,51 +339,314 @@ public class ZipFile implements ZipConstants, Closeable
     if (centralOffset > pos - centralSize)
       throw new ZipException("invalid END header (bad central directory offset)");
 
-    entries = new LinkedHashMap<String, ZipEntry> (count+count/2);
+    if (centralSize > Integer.MAX_VALUE)
+      throw new ZipException("invalid END header (central directory too large)");
+
+    cen = new byte[(int) centralSize];
     inp.seek(pos - centralSize);
-    
-    while (inp.position() <= pos - CENHDR)
+    inp.readFully(cen);
+
+    // count is only a hint, it wraps for archives with more than 64K entries
+    long[] info = new long[Math.max(count, 16)];
+    int n = 0;
+    int p = 0;
+    while (p <= cen.length - CENHDR)
       {
-        if (inp.readLeInt() != CENSIG)
+        if (cenInt(p) != CENSIG)
           throw new ZipException("invalid CEN header (bad signature)");
 
-        inp.skip(4);
-        int flags = inp.readLeUnsignedShort();
+        int flags = cenShort(p + CENFLG);
         if ((flags & 1) != 0)
           throw new ZipException("invalid CEN header (encrypted entry)");
-        int method = inp.readLeUnsignedShort();
+        int method = cenShort(p + CENHOW);
         if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
           throw new ZipException("invalid CEN header (bad compression method)");
-        ZipEntry entry = new ZipEntry();
-        entry.flag = flags;
-        entry.method = method;
-        entry.dostime = inp.readLeUnsignedInt();
-        entry.crc = inp.readLeUnsignedInt();
-        entry.csize = inp.readLeUnsignedInt();
-        entry.size = inp.readLeUnsignedInt();
-        int nameLen = inp.readLeUnsignedShort();
-        int extraLen = inp.readLeUnsignedShort();
-        int commentLen = inp.readLeUnsignedShort();
-        inp.skip(8);
-        entry.offset = inp.readLeUnsignedInt();
-        entry.name = inp.readString(nameLen, (flags & EFS) != 0);
-
-        if (extraLen > 0)
+        int next = p + CENHDR + cenShort(p + CENNAM) + cenShort(p + CENEXT)
+          + cenShort(p + CENCOM);
+        if (next > cen.length)
+          throw new ZipException("invalid CEN header (bad header size)");
+
+        if (n == info.length)
+          info = Arrays.copyOf(info, n * 2);
+        info[n++] = ((long) cenNameHash(p) << 32) | p;
+        p = next;
+      }
+
+    if (p != cen.length)
+      throw new ZipException("invalid CEN header (bad header size)");
+
+    int size = 1;
+    while (size < n * 2)
+      size <<= 1;
+    int[] table = new int[size];
+    // Insert in reverse order, so that for duplicate names the last
+    // record in the directory is found first.
+    for (int i = n - 1; i >= 0; i--)
+      {
+        int slot = (int) (info[i] >>> 32) & (size - 1);
+        while (table[slot] != 0)
+          slot = (slot + 1) & (size - 1);
+        table[slot] = i + 1;
+      }
+
+    this.cenEntries = info;
+    this.cenCount = n;
+    this.visibleCount = n;
+    this.table = table;
+  }
+
+  private int cenShort(int off)
+  {
+    return (cen[off] & 0xFF) | ((cen[off + 1] & 0xFF) << 8);
+  }
+
+  private int cenInt(int off)
+  {
+    return cenShort(off) | (cenShort(off + 2) << 16);
+  }
+
+  private long cenUnsignedInt(int off)
+  {
+    return cenInt(off) & 0xffffffffL;
+  }
+
+  /**
+   * Returns true if the name of the record at <code>pos</code> is decoded
+   * as UTF-8, in which case ASCII names can be hashed and compared
+   * without decoding them.
+   */
+  private boolean isUtf8(int pos)
+  {
+    return (cenShort(pos + CENFLG) & EFS) != 0 || charset == StandardCharsets.UTF_8;
+  }
+
+  private String cenName(int pos)
+  {
+    return decodeChars(cen, pos + CENHDR, cenShort(pos + CENNAM),
+                       (cenShort(pos + CENFLG) & EFS) != 0);
+  }
+
+  /**
+   * Computes String.hashCode() of the name of the record at
+   * <code>pos</code>.
+   */
+  private int cenNameHash(int pos)
+  {
+    if (isUtf8(pos))
+      {
+        int off = pos + CENHDR;
+        int end = off + cenShort(pos + CENNAM);
+        int h = 0;
+        for (; off < end; off++)
           {
-            byte[] extra = new byte[extraLen];
-            inp.readFully(extra);
-            entry.setExtra0(extra, false);
-            readZip64ExtraField(entry, extra);
+            byte b = cen[off];
+            if (b <= 0)
+              return cenName(pos).hashCode();
+            h = 31 * h + b;
           }
-        if (commentLen > 0)
+        return h;
+      }
+    return cenName(pos).hashCode();
+  }
+
+  private boolean cenNameEquals(int pos, String name)
+  {
+    int len = cenShort(pos + CENNAM);
+    if (isUtf8(pos) && len == name.length())
+      {
+        int off = pos + CENHDR;
+        int i = 0;
+        for (; i < len; i++)
           {
-            entry.comment = inp.readString(commentLen, (flags & EFS) != 0);
+            byte b = cen[off + i];
+            if (b <= 0)
+              break;
+            if (b != name.charAt(i))
+              return false;
           }
-        entries.put(entry.name, entry);
+        if (i == len)
+          return true;
       }
+    return cenName(pos).equals(name);
+  }
 
-    if (inp.position() != pos)
-      throw new ZipException("invalid CEN header (bad header size)");
+  /**
+   * Returns the index in cenEntries of the entry with the given name,
+   * or -1 if there is none.
+   */
+  private int findEntry(String name)
+  {
+    int hash = name.hashCode();
+    int[] table = this.table;
+    int mask = table.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask)
+      {
+        int index = table[slot] - 1;
+        if (index < 0)
+          return -1;
+        long info = cenEntries[index];
+        if ((int) (info >>> 32) == hash && (int) info != -1
+            && cenNameEquals((int) info, name))
+          return index;
+      }
+  }
+
+  /**
+   * Decodes a new ZipEntry from the central directory record at
+   * <code>pos</code>.
+   */
+  private ZipEntry getEntryAt(int pos)
+  {
+    int flags = cenShort(pos + CENFLG);
+    int nameLen = cenShort(pos + CENNAM);
+    int extraLen = cenShort(pos + CENEXT);
+    int commentLen = cenShort(pos + CENCOM);
+    ZipEntry entry = new ZipEntry();
+    entry.flag = flags;
+    entry.method = cenShort(pos + CENHOW);
+    entry.dostime = cenUnsignedInt(pos + CENTIM);
+    entry.crc = cenUnsignedInt(pos + CENCRC);
+    entry.csize = cenUnsignedInt(pos + CENSIZ);
+    entry.size = cenUnsignedInt(pos + CENLEN);
+    entry.offset = cenUnsignedInt(pos + CENOFF);
+    int off = pos + CENHDR;
+    entry.name = decodeChars(cen, off, nameLen, (flags & EFS) != 0);
+    off += nameLen;
+
+    if (extraLen > 0)
+      {
+        byte[] extra = Arrays.copyOfRange(cen, off, off + extraLen);
+        entry.setExtra0(extra, false);
+        readZip64ExtraField(entry, extra);
+        off += extraLen;
+      }
+    if (commentLen > 0)
+      {
+        entry.comment = decodeChars(cen, off, commentLen, (flags & EFS) != 0);
+      }
+    return entry;
+  }
+
+  /**
+   * Looks up an entry in the central directory index or in the class
+   * stubs.  Returns null if there is no entry with the given name.
+   */
+  private ZipEntry lookupEntry(String name)
+  {
+    int index = findEntry(name);
+    if (index >= 0)
+      return getEntryAt((int) cenEntries[index]);
+    if (stubs != null)
+      {
+        ZipEntry entry = stubs.get(name);
+        if (entry != null)
+          return (ZipEntry) entry.clone();
+      }
+    return null;
+  }
+
+  /**
+   * Removes the entry with the given name from the view of this zip file.
+   * This is called by ClassStubZipEntry.expandIkvmClasses() while the
+   * zip file is being opened.
+   */
+  void hideEntry(String name)
+  {
+    int index = findEntry(name);
+    if (index >= 0)
+      {
+        cenEntries[index] = -1L;
+        visibleCount--;
+      }
+  }
+
+  /**
+   * Returns the names of the entries whose names start with "META-INF/",
+   * compared case insensitively, or null if there are none.  This is
+   * called by JarFile.getMetaInfEntryNames() and only decodes the names
+   * of the matching central directory records.
+   */
+  String[] getMetaInfEntryNames()
+  {
+    checkClosed();
+    ArrayList<String> names = null;
+    for (int i = 0; i < cenCount; i++)
+      {
+        int pos = (int) cenEntries[i];
+        if (pos != -1 && cenNameStartsWithMetaInf(pos))
+          {
+            if (names == null)
+              names = new ArrayList<String>();
+            names.add(cenName(pos));
+          }
+      }
+    if (stubs != null)
+      {
+        for (String name : stubs.keySet())
+          {
+            if (name.regionMatches(true, 0, META_INF, 0, META_INF.length()))
+              {
+                if (names == null)
+                  names = new ArrayList<String>();
+                names.add(name);
+              }
+          }
+      }
+    return names == null ? null : names.toArray(new String[names.size()]);
+  }
+
+  private static final String META_INF = "META-INF/";
+
+  private boolean cenNameStartsWithMetaInf(int pos)
+  {
+    int len = cenShort(pos + CENNAM);
+    if (len < META_INF.length())
+      return false;
+    if (isUtf8(pos))
+      {
+        int off = pos + CENHDR;
+        int i = 0;
+        for (; i < META_INF.length(); i++)
+          {
+            byte b = cen[off + i];
+            if (b <= 0)
+              break;
+            if (Character.toUpperCase((char) b) != META_INF.charAt(i))
+              return false;
+          }
+        if (i == META_INF.length())
+          return true;
+      }
+    return cenName(pos).regionMatches(true, 0, META_INF, 0, META_INF.length());
+  }
+
+  /**
+   * Decode chars from byte buffer using charset encoding.  This
+   * operation is performance-critical since a jar file contains a
+   * large number of strings for the name of each file in the
+   * archive.  This routine therefore avoids using the expensive
+   * utf8Decoder when decoding is straightforward.
+   *
+   * @param buffer the buffer that contains the encoded character
+   *        data
+   * @param pos the index in buffer of the first byte of the encoded
+   *        data
+   * @param length the length of the encoded data in number of
+   *        bytes.
+   *
+   * @return a String that contains the decoded characters.
+   */
+  private String decodeChars(byte[] buffer, int pos, int length, boolean utf8)
+  {
+    if (!utf8 && charset != StandardCharsets.UTF_8)
+      return new String(buffer, pos, length, charset);
+
+    for (int i = pos; i < pos + length; i++)
+      {
+        if (buffer[i] <= 0)
+          return new String(buffer, pos, length, StandardCharsets.UTF_8);
+      }
+    return new String(buffer, 0, pos, length);
   }
 
   private static void readZip64ExtraField(ZipEntry entry, byte[] extra)
@@ -387,7 +717,10 @@ public class ZipFile implements ZipConstants, Closeable
     synchronized (raf)
       {
         closed = true;
-        entries = null;
+        cen = null;
+        cenEntries = null;
+        table = null;
+        stubs = null;
         raf.close();
       }
   }
@@ -409,13 +742,15 @@ public class ZipFile implements ZipConstants, Closeable
   public Enumeration<? extends ZipEntry> entries()
   {
     checkClosed();
-    return new ZipEntryEnumeration(entries.values().iterator());
+    return new ZipEntryEnumeration(new ZipEntryIterator());
   }
 
   public Stream<? extends ZipEntry> stream()
   {
     checkClosed();
-    return entries.values().stream();
+    return StreamSupport.stream(Spliterators.spliterator(
+      new ZipEntryIterator(), size(), Spliterator.ORDERED | Spliterator.DISTINCT
+        | Spliterator.IMMUTABLE | Spliterator.NONNULL), false);
   }
 
   /**
@@ -430,11 +765,11 @@ public class ZipFile implements ZipConstants, Closeable
   public ZipEntry getEntry(String name)
   {
     checkClosed();
-    ZipEntry entry = entries.get(name);
+    ZipEntry entry = lookupEntry(name);
     // If we didn't find it, maybe it's a directory.
     if (entry == null && !name.endsWith("/"))
-      entry = entries.get(name + '/');
-    return entry != null ? (ZipEntry)entry.clone() : null;
+      entry = lookupEntry(name + '/');
+    return entry;
   }
 
   /**
@@ -463,7 +798,7 @@ public class ZipFile implements ZipConstants, Closeable
   {
     checkClosed();
 
-    final ZipEntry zipEntry = entries.get(entry.getName());
+    final ZipEntry zipEntry = lookupEntry(entry.getName());
     if (zipEntry == null)
       return null;
 
@@ -535,7 +870,7 @@ public class ZipFile implements ZipConstants, Closeable
   public int size()
   {
     checkClosed();
-    return entries.size();
+    return visibleCount + (stubs != null ? stubs.size() : 0);
   }
 
   /**
@@ -562,6 +897,45 @@ public class ZipFile implements ZipConstants, Closeable
       }
   }
 
+  /**
+   * Iterates over the central directory entries, followed by the class
+   * stubs.  Every call to next() returns a new ZipEntry instance.
+   */
+  private class ZipEntryIterator implements Iterator<ZipEntry>
+  {
+    private final Iterator<ZipEntry> stubIterator =
+      stubs != null ? stubs.values().iterator() : null;
+    private int index = nextVisible(0);
+
+    private int nextVisible(int i)
+    {
+      while (i < cenCount && (int) cenEntries[i] == -1)
+        i++;
+      return i;
+    }
+
+    public boolean hasNext()
+    {
+      checkClosed();
+      return index < cenCount
+        || (stubIterator != null && stubIterator.hasNext());
+    }
+
+    public ZipEntry next()
+    {
+      checkClosed();
+      if (index < cenCount)
+        {
+          ZipEntry entry = getEntryAt((int) cenEntries[index]);
+          index = nextVisible(index + 1);
+          return entry;
+        }
+      if (stubIterator == null)
+        throw new NoSuchElementException();
+      return (ZipEntry) stubIterator.next().clone();
+    }
+  }
+
   private static class ZipEntryEnumeration implements Enumeration<ZipEntry>
   {
     private final Iterator<ZipEntry> elements;
@@ -578,16 +952,16 @@ public class ZipFile implements ZipConstants, Closeable
 
     public ZipEntry nextElement()
     {
-      /* We return a clone, just to be safe that the user doesn't
-       * change the entry.  
-       */
-      return (ZipEntry) (elements.next().clone());
+      // ZipEntryIterator already returns fresh entries.
+      return elements.next();
     }
   }
 
   private class PartialInputStream extends InputStream
   {
     private final byte[] buffer;
+    // Private view of the mapping, so that no position state is shared.
+    private ByteBuffer view;
     private long bufferOffset;
     private int pos;
     private long end;
@@ -647,15 +1021,25 @@ public class ZipFile implements ZipConstants, Closeable
       if (closed)
         throw new ZipException("ZipFile closed");
 
-      synchronized (raf)
+      long len = end - bufferOffset;
+      if (len == 0 && dummyByteCount > 0)
         {
-          long len = end - bufferOffset;
-          if (len == 0 && dummyByteCount > 0)
-            {
-              buffer[0] = 0;
-              dummyByteCount = 0;
-            }
-          else
+          buffer[0] = 0;
+          dummyByteCount = 0;
+        }
+      else if (mapped != null)
+        {
+          int count = (int) Math.min(buffer.length, len);
+          if (bufferOffset < 0 || bufferOffset + count > mapped.capacity())
+            throw new EOFException();
+          if (view == null)
+            view = mapped.duplicate();
+          view.position((int) bufferOffset);
+          view.get(buffer, 0, count);
+        }
+      else
+        {
+          synchronized (raf)
             {
               raf.seek(bufferOffset);
               raf.readFully(buffer, 0, (int) Math.min(buffer.length, len));
@@ -833,59 +1217,22 @@ public class ZipFile implements ZipConstants, Closeable
       return readLeUnsignedInt() | (readLeUnsignedInt() << 32);
     }
 
-    /**
-     * Decode chars from byte buffer using charset encoding.  This
-     * operation is performance-critical since a jar file contains a
-     * large number of strings for the name of each file in the
-     * archive.  This routine therefore avoids using the expensive
-     * utf8Decoder when decoding is straightforward.
-     *
-     * @param buffer the buffer that contains the encoded character
-     *        data
-     * @param pos the index in buffer of the first byte of the encoded
-     *        data
-     * @param length the length of the encoded data in number of
-     *        bytes.
-     *
-     * @return a String that contains the decoded characters.
-     */
-    private String decodeChars(byte[] buffer, int pos, int length, boolean utf8)
-      throws IOException
-    {
-      if (!utf8 && charset != StandardCharsets.UTF_8)
-        return new String(buffer, pos, length, charset);
-
-      for (int i = pos; i < pos + length; i++)
-        {
-          if (buffer[i] <= 0)
-            return new String(buffer, pos, length, "UTF-8");
-        }
-      return new String(buffer, 0, pos, length);
-    }
-
     String readString(int length, boolean utf8) throws IOException
     {
       if (length > end - (bufferOffset + pos))
         throw new EOFException();
 
-      String result = null;
-      try
+      String result;
+      if (buffer.length - pos >= length)
         {
-          if (buffer.length - pos >= length)
-            {
-              result = decodeChars(buffer, pos, length, utf8);
-              pos += length;
-            }
-          else
-            {
-              byte[] b = new byte[length];
-              readFully(b);
-              result = decodeChars(b, 0, length, utf8);
-            }
+          result = decodeChars(buffer, pos, length, utf8);
+          pos += length;
         }
-      catch (UnsupportedEncodingException uee)
+      else
         {
-          throw new AssertionError(uee);
+          byte[] b = new byte[length];
+          readFully(b);
+          result = decodeChars(b, 0, length, utf8);
         }
       return result;
     }
@@ -0,0 +1,168 @@
+/*
+  Copyright (C) 2026 IKVM.NET contributors
+
+  This software is provided 'as-is', without any express or implied
+  warranty.  In no event will the authors be held liable for any damages
+  arising from the use of this software.
+
+  Permission is granted to anyone to use this software for any purpose,
+  including commercial applications, and to alter it and redistribute it
+  freely, subject to the following restrictions:
+
+  1. The origin of this software must not be misrepresented; you must not
+     claim that you wrote the original software. If you use this software
+     in a product, an acknowledgment in the product documentation would be
+     appreciated but is not required.
+  2. Altered source versions must be plainly marked as such, and must not be
+     misrepresented as being the original software.
+  3. This notice may not be removed or altered from any source distribution.
+
+*/
+
+package sun.misc;
+
+import cli.System.IntPtr;
+import cli.System.Runtime.InteropServices.Marshal;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Recycles the native memory blocks of Unsafe.allocateMemory(), which is
+ * mostly used by DirectByteBuffer.  Blocks are rounded up to a power of
+ * two between 4K and 1M and freed blocks are kept in a free list per size,
+ * up to a total of -Dikvm.nio.directMemoryPool=<bytes>.  The pool is
+ * disabled when the property isn't set.
+ *
+ * Every block starts with a header that contains the block size, so that
+ * freeMemory() (which doesn't get a size) knows where to return it.  The
+ * header is also present for blocks that are too large to be pooled.
+ */
+@ikvm.lang.Internal
+public final class NativeMemoryPool
+{
+    static final long CAPACITY =
+        java.security.AccessController.doPrivileged(
+            new sun.security.action.GetLongAction("ikvm.nio.directMemoryPool", 0)).longValue();
+    public static final boolean ENABLED = CAPACITY > 0;
+
+    // 16 bytes, to keep the alignment of the memory returned by AllocHGlobal
+    private static final int HEADER = 16;
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 20;
+    private static final int MAX_DEPTH = 256;
+
+    private static final FreeList[] freeLists = new FreeList[MAX_SHIFT - MIN_SHIFT + 1];
+    private static final AtomicLong pooledBytes = new AtomicLong();
+    private static final AtomicLong allocations = new AtomicLong();
+    private static final AtomicLong hits = new AtomicLong();
+
+    static
+    {
+        for (int i = 0; i < freeLists.length; i++)
+        {
+            freeLists[i] = new FreeList();
+        }
+    }
+
+    private static final class FreeList
+    {
+        private final long[] blocks = new long[MAX_DEPTH];
+        private int depth;
+
+        synchronized long pop()
+        {
+            return depth == 0 ? 0 : blocks[--depth];
+        }
+
+        synchronized boolean push(long block)
+        {
+            if (depth == blocks.length)
+            {
+                return false;
+            }
+            blocks[depth++] = block;
+            return true;
+        }
+    }
+
+    private NativeMemoryPool() { }
+
+    // returns the free list index for a block of the given total size, or -1 if it isn't pooled
+    private static int sizeClass(long blockSize)
+    {
+        if (blockSize > (1L << MAX_SHIFT))
+        {
+            return -1;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(blockSize - 1);
+        return Math.max(shift, MIN_SHIFT) - MIN_SHIFT;
+    }
+
+    @cli.System.Security.SecurityCriticalAttribute.Annotation
+    static long allocate(long bytes)
+    {
+        allocations.incrementAndGet();
+        long blockSize = bytes + HEADER;
+        int index = sizeClass(blockSize);
+        if (index >= 0)
+        {
+            blockSize = 1L << (index + MIN_SHIFT);
+            long block = freeLists[index].pop();
+            if (block != 0)
+            {
+                pooledBytes.addAndGet(-blockSize);
+                hits.incrementAndGet();
+                return block + HEADER;
+            }
+        }
+        long block = Marshal.AllocHGlobal(IntPtr.op_Explicit(blockSize)).ToInt64();
+        Marshal.WriteInt64(IntPtr.op_Explicit(block), blockSize);
+        return block + HEADER;
+    }
+
+    @cli.System.Security.SecurityCriticalAttribute.Annotation
+    static void free(long address)
+    {
+        if (address == 0)
+        {
+            return;
+        }
+        long block = address - HEADER;
+        long blockSize = Marshal.ReadInt64(IntPtr.op_Explicit(block));
+        int index = sizeClass(blockSize);
+        if (index >= 0 && pooledBytes.addAndGet(blockSize) <= CAPACITY)
+        {
+            if (freeLists[index].push(block))
+            {
+                return;
+            }
+        }
+        if (index >= 0)
+        {
+            pooledBytes.addAndGet(-blockSize);
+        }
+        Marshal.FreeHGlobal(IntPtr.op_Explicit(block));
+    }
+
+    @cli.System.Security.SecurityCriticalAttribute.Annotation
+    static long usableSize(long address)
+    {
+        return Marshal.ReadInt64(IntPtr.op_Explicit(address - HEADER)) - HEADER;
+    }
+
+    // -- statistics, for java.nio.Bits
+
+    public static long getAllocationCount()
+    {
+        return allocations.get();
+    }
+
+    public static long getHitCount()
+    {
+        return hits.get();
+    }
+
+    public static long getPooledBytes()
+    {
+        return pooledBytes.get();
+    }
+}
@@ -33,7 +33,6 @@ import ikvm.lang.Internal;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.security.ProtectionDomain;
-import java.util.ArrayList;
 
 public final class Unsafe
 {
@@ -42,7 +41,10 @@ public final class Unsafe
     // NOTE sun.corba.Bridge actually access this field directly (via reflection),
     // so the name must match the JDK name.
     private static final Unsafe theUnsafe = new Unsafe();
-    private static final ArrayList<Field> fields = new ArrayList<Field>();
+    // read-mostly table of the fields that have an offset, indexed by offset,
+    // it is replaced when it grows, so readers don't need a lock
+    private static volatile Field[] fields = new Field[16];
+    private static int fieldCount;
 
     private Unsafe() { }
 
@@ -93,10 +95,18 @@ public final class Unsafe
     static int allocateUnsafeFieldId(Field original)
     {
         Field copy = copyFieldAndMakeAccessible(original);
-        synchronized(fields)
+        synchronized(Unsafe.class)
         {
-            int id = fields.size();
-            fields.add(copy);
+            int id = fieldCount;
+            Field[] table = fields;
+            if(id == table.length)
+            {
+                table = java.util.Arrays.copyOf(table, id * 2);
+            }
+            table[id] = copy;
+            fieldCount = id + 1;
+            // this volatile write also publishes the new entry of an existing table
+            fields = table;
             return id;
         }
     }
@@ -131,10 +141,7 @@ public final class Unsafe
 
     static Field getField(long offset)
     {
-        synchronized(fields)
-        {
-            return fields.get((int)offset);
-        }
+        return fields[(int)offset];
     }
 
     public final native boolean compareAndSwapObject(Object obj, long offset, Object expect, Object update);
@@ -143,25 +150,14 @@ public final class Unsafe
     {
         if(obj instanceof Object[])
         {
-            synchronized(this)
-            {
-                ((Object[])obj)[(int)offset] = newValue;
-            }
+            // the barriers give the store release and sequentially consistent semantics
+            cli.System.Threading.Thread.MemoryBarrier();
+            ((Object[])obj)[(int)offset] = newValue;
+            cli.System.Threading.Thread.MemoryBarrier();
         }
         else
         {
-            Field field = getField(offset);
-            synchronized(field)
-            {
-                try
-                {
-                    field.set(obj, newValue);
-                }
-                catch(IllegalAccessException x)
-                {
-                    throw (InternalError)new InternalError().initCause(x);
-                }
-            }
+            PutFieldObject(obj, offset, newValue);
         }
     }
 
@@ -174,25 +170,14 @@ public final class Unsafe
     {
         if(obj instanceof Object[])
         {
-            synchronized(this)
-            {
-                return ((Object[])obj)[(int)offset];
-            }
+            // reference loads are atomic, the barrier gives the load acquire semantics
+            Object value = ((Object[])obj)[(int)offset];
+            cli.System.Threading.Thread.MemoryBarrier();
+            return value;
         }
         else
         {
-            Field field = getField(offset);
-            synchronized(field)
-            {
-                try
-                {
-                    return field.get(obj);
-                }
-                catch(IllegalAccessException x)
-                {
-                    throw (InternalError)new InternalError().initCause(x);
-                }
-            }
+            return GetFieldObject(obj, offset);
         }
     }
 
@@ -202,6 +187,19 @@ public final class Unsafe
     private static native void WriteInt16(Object obj, long offset, short value);
     private static native void WriteInt32(Object obj, long offset, int value);
     private static native void WriteInt64(Object obj, long offset, long value);
+    private static native int ReadInt32Volatile(Object obj, long offset);
+    private static native long ReadInt64Volatile(Object obj, long offset);
+    private static native void WriteInt32Volatile(Object obj, long offset, int value);
+    private static native void WriteInt64Volatile(Object obj, long offset, long value);
+    private static native int GetFieldInt32(Object obj, long offset);
+    private static native long GetFieldInt64(Object obj, long offset);
+    private static native Object GetFieldObject(Object obj, long offset);
+    private static native void PutFieldInt32(Object obj, long offset, int value);
+    private static native void PutFieldInt64(Object obj, long offset, long value);
+    private static native void PutFieldObject(Object obj, long offset, Object value);
+    private static native void CopyMemory(long srcAddress, long destAddress, long bytes);
+    private static native void CopyMemoryPinned(Object srcBase, long srcOffset, Object destBase, long destOffset, long bytes);
+    private static native void SetMemory(Object o, long offset, long bytes, byte value);
 
     public final native boolean compareAndSwapInt(Object obj, long offset, int expect, int update);
 
@@ -209,25 +207,11 @@ public final class Unsafe
     {
         if (obj instanceof cli.System.Array)
         {
-            synchronized(this)
-            {
-                WriteInt32(obj, offset, newValue);
-            }
+            WriteInt32Volatile(obj, offset, newValue);
         }
         else
         {
-            Field field = getField(offset);
-            synchronized(field)
-            {
-                try
-                {
-                    field.setInt(obj, newValue);
-                }
-                catch(IllegalAccessException x)
-                {
-                    throw (InternalError)new InternalError().initCause(x);
-                }
-            }
+            PutFieldInt32(obj, offset, newValue);
         }
     }
 
@@ -240,25 +224,11 @@ public final class Unsafe
     {
         if (obj instanceof cli.System.Array)
         {
-            synchronized(this)
-            {
-                return ReadInt32(obj, offset);
-            }
+            return ReadInt32Volatile(obj, offset);
         }
         else
         {
-            Field field = getField(offset);
-            synchronized(field)
-            {
-                try
-                {
-                    return field.getInt(obj);
-                }
-                catch(IllegalAccessException x)
-                {
-                    throw (InternalError)new InternalError().initCause(x);
-                }
-            }
+            return GetFieldInt32(obj, offset);
         }
     }
 
@@ -268,25 +238,11 @@ public final class Unsafe
     {
         if (obj instanceof cli.System.Array)
         {
-            synchronized(this)
-            {
-                WriteInt64(obj, offset, newValue);
-            }
+            WriteInt64Volatile(obj, offset, newValue);
         }
         else
         {
-            Field field = getField(offset);
-            synchronized(field)
-            {
-                try
-                {
-                    field.setLong(obj, newValue);
-                }
-                catch(IllegalAccessException x)
-                {
-                    throw (InternalError)new InternalError().initCause(x);
-                }
-            }
+            PutFieldInt64(obj, offset, newValue);
         }
     }
 
@@ -299,25 +255,11 @@ public final class Unsafe
     {
         if (obj instanceof cli.System.Array)
         {
-            synchronized(this)
-            {
-                return ReadInt64(obj, offset);
-            }
+            return ReadInt64Volatile(obj, offset);
         }
         else
         {
-            Field field = getField(offset);
-            synchronized(field)
-            {
-                try
-                {
-                    return field.getLong(obj);
-                }
-                catch(IllegalAccessException x)
-                {
-                    throw (InternalError)new InternalError().initCause(x);
-                }
-            }
+            return GetFieldInt64(obj, offset);
         }
     }
 
@@ -521,14 +463,7 @@ public final class Unsafe
         }
         else
         {
-            try
-            {
-                getField(offset).setInt(obj, newValue);
-            }
-            catch (IllegalAccessException x)
-            {
-                throw (InternalError)new InternalError().initCause(x);
-            }
+            PutFieldInt32(obj, offset, newValue);
         }
     }
 
@@ -540,14 +475,7 @@ public final class Unsafe
         }
         else
         {
-            try
-            {
-                return getField(offset).getInt(obj);
-            }
-            catch (IllegalAccessException x)
-            {
-                throw (InternalError)new InternalError().initCause(x);
-            }
+            return GetFieldInt32(obj, offset);
         }
     }
 
@@ -607,14 +535,7 @@ public final class Unsafe
         }
         else
         {
-            try
-            {
-                getField(offset).setLong(obj, newValue);
-            }
-            catch (IllegalAccessException x)
-            {
-                throw (InternalError)new InternalError().initCause(x);
-            }
+            PutFieldInt64(obj, offset, newValue);
         }
     }
 
@@ -626,14 +547,7 @@ public final class Unsafe
         }
         else
         {
-            try
-            {
-                return getField(offset).getLong(obj);
-            }
-            catch (IllegalAccessException x)
-            {
-                throw (InternalError)new InternalError().initCause(x);
-            }
+            return GetFieldInt64(obj, offset);
         }
     }
 
@@ -658,9 +572,24 @@ public final class Unsafe
 
     public void putDoubleVolatile(Object obj, long offset, double newValue)
     {
-        synchronized (this)
+        if (obj instanceof cli.System.Array)
         {
-            putDouble(obj, offset, newValue);
+            WriteInt64Volatile(obj, offset, Double.doubleToRawLongBits(newValue));
+        }
+        else
+        {
+            Field field = getField(offset);
+            synchronized(field)
+            {
+                try
+                {
+                    field.setDouble(obj, newValue);
+                }
+                catch(IllegalAccessException x)
+                {
+                    throw (InternalError)new InternalError().initCause(x);
+                }
+            }
         }
     }
 
@@ -685,9 +614,24 @@ public final class Unsafe
 
     public double getDoubleVolatile(Object obj, long offset)
     {
-        synchronized (this)
+        if (obj instanceof cli.System.Array)
         {
-            return getDouble(obj, offset);
+            return Double.longBitsToDouble(ReadInt64Volatile(obj, offset));
+        }
+        else
+        {
+            Field field = getField(offset);
+            synchronized(field)
+            {
+                try
+                {
+                    return field.getDouble(obj);
+                }
+                catch(IllegalAccessException x)
+                {
+                    throw (InternalError)new InternalError().initCause(x);
+                }
+            }
         }
     }
 
@@ -699,14 +643,7 @@ public final class Unsafe
         }
         else
         {
-            try
-            {
-                getField(offset).set(obj, newValue);
-            }
-            catch (IllegalAccessException x)
-            {
-                throw (InternalError)new InternalError().initCause(x);
-            }
+            PutFieldObject(obj, offset, newValue);
         }
     }
 
@@ -718,14 +655,7 @@ public final class Unsafe
         }
         else
         {
-            try
-            {
-                return getField(offset).get(obj);
-            }
-            catch (IllegalAccessException x)
-            {
-                throw (InternalError)new InternalError().initCause(x);
-            }
+            return GetFieldObject(obj, offset);
         }
     }
 
@@ -868,6 +798,10 @@ public final class Unsafe
         try
         {
             if (false) throw new cli.System.OutOfMemoryException();
+            if (NativeMemoryPool.ENABLED)
+            {
+                return NativeMemoryPool.allocate(bytes);
+            }
             return Marshal.AllocHGlobal(IntPtr.op_Explicit(bytes)).ToInt64();
         }
         catch (cli.System.OutOfMemoryException x)
@@ -888,6 +822,22 @@ public final class Unsafe
         try
         {
             if (false) throw new cli.System.OutOfMemoryException();
+            if (NativeMemoryPool.ENABLED)
+            {
+                if (address == 0)
+                {
+                    return NativeMemoryPool.allocate(bytes);
+                }
+                long size = NativeMemoryPool.usableSize(address);
+                if (size >= bytes)
+                {
+                    return address;
+                }
+                long newAddress = NativeMemoryPool.allocate(bytes);
+                CopyMemory(address, newAddress, size);
+                NativeMemoryPool.free(address);
+                return newAddress;
+            }
             return Marshal.ReAllocHGlobal(IntPtr.op_Explicit(address), IntPtr.op_Explicit(bytes)).ToInt64();
         }
         catch (cli.System.OutOfMemoryException x)
@@ -900,42 +850,30 @@ public final class Unsafe
     @cli.System.Security.SecurityCriticalAttribute.Annotation
     public void freeMemory(long address)
     {
-        Marshal.FreeHGlobal(IntPtr.op_Explicit(address));
+        if (NativeMemoryPool.ENABLED)
+        {
+            NativeMemoryPool.free(address);
+        }
+        else
+        {
+            Marshal.FreeHGlobal(IntPtr.op_Explicit(address));
+        }
     }
 
     @SecurityPermissionAttribute.Annotation(value = SecurityAction.__Enum.LinkDemand, UnmanagedCode = true)
     @cli.System.Security.SecurityCriticalAttribute.Annotation
     public void setMemory(long address, long bytes, byte value)
     {
-        while (bytes-- > 0)
-        {
-            putByte(address++, value);
-        }
+        SetMemory(null, address, bytes, value);
     }
 
     @SecurityPermissionAttribute.Annotation(value = SecurityAction.__Enum.LinkDemand, UnmanagedCode = true)
     @cli.System.Security.SecurityCriticalAttribute.Annotation
     public void setMemory(Object o, long offset, long bytes, byte value)
     {
-        if (o == null)
+        if (o == null || o instanceof cli.System.Array)
         {
-            setMemory(offset, bytes, value);
-        }
-        else if (o instanceof byte[])
-        {
-            byte[] array = (byte[])o;
-            for (int i = 0; i < bytes; i++)
-            {
-                array[(int)(offset + i)] = value;
-            }
-        }
-        else if (o instanceof cli.System.Array)
-        {
-            cli.System.Array array = (cli.System.Array)o;
-            for (int i = 0; i < bytes; i++)
-            {
-                cli.System.Buffer.SetByte(array, (int)(offset + i), value);
-            }
+            SetMemory(o, offset, bytes, value);
         }
         else
         {
@@ -947,10 +885,7 @@ public final class Unsafe
     @cli.System.Security.SecurityCriticalAttribute.Annotation
     public void copyMemory(long srcAddress, long destAddress, long bytes)
     {
-	while (bytes-- > 0)
-	{
-	    putByte(destAddress++, getByte(srcAddress++));
-	}
+        CopyMemory(srcAddress, destAddress, bytes);
     }
     
     @SecurityPermissionAttribute.Annotation(value = SecurityAction.__Enum.LinkDemand, UnmanagedCode = true)
@@ -965,9 +900,7 @@ public final class Unsafe
             }
             else if (destBase instanceof boolean[])
             {
-                byte[] tmp = new byte[(int)bytes];
-                copyMemory(srcBase, srcOffset, tmp, 0, bytes);
-                copyMemory(tmp, 0, destBase, destOffset, bytes);
+                CopyMemoryPinned(null, srcOffset, destBase, destOffset, bytes);
             }
             else if (destBase instanceof short[])
             {
@@ -1014,9 +947,7 @@ public final class Unsafe
             }
             else if (srcBase instanceof boolean[])
             {
-                byte[] tmp = new byte[(int)bytes];
-                copyMemory(srcBase, srcOffset, tmp, 0, bytes);
-                copyMemory(tmp, 0, destBase, destOffset, bytes);
+                CopyMemoryPinned(srcBase, srcOffset, null, destOffset, bytes);
             }
             else if (srcBase instanceof short[])
             {
@@ -0,0 +1,467 @@
+/*
+  Copyright (C) 2026 IKVM.NET contributors
+
+  This software is provided 'as-is', without any express or implied
+  warranty.  In no event will the authors be held liable for any damages
+  arising from the use of this software.
+
+  Permission is granted to anyone to use this software for any purpose,
+  including commercial applications, and to alter it and redistribute it
+  freely, subject to the following restrictions:
+
+  1. The origin of this software must not be misrepresented; you must not
+     claim that you wrote the original software. If you use this software
+     in a product, an acknowledgment in the product documentation would be
+     appreciated but is not required.
+  2. Altered source versions must be plainly marked as such, and must not be
+     misrepresented as being the original software.
+  3. This notice may not be removed or altered from any source distribution.
+
+*/
+
+package sun.nio.ch;
+
+import cli.System.AsyncCallback;
+import cli.System.IAsyncResult;
+import cli.System.Net.Sockets.Socket;
+import cli.System.Net.Sockets.SocketException;
+import cli.System.Net.Sockets.SocketFlags;
+import cli.System.Net.Sockets.SocketType;
+import cli.System.Collections.ArrayList;
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A selector that keeps its interest set between selects instead of
+ * rebuilding it every time.  Connected stream sockets that are only
+ * interested in reading are watched with an outstanding zero byte
+ * asynchronous receive, which completes when data (or end of stream)
+ * arrives, so idle connections cost nothing per select.  Only the keys
+ * that are interested in anything else (accept, connect, write) or that
+ * can't be watched that way are passed to Socket.Select.
+ *
+ * Used when java.nio.channels.spi.SelectorProvider is set to
+ * sun.nio.ch.DotNetAsyncSelectorProvider.
+ */
+final class DotNetAsyncSelectorImpl extends SelectorImpl
+{
+    private static final byte[] EMPTY = new byte[0];
+
+    private long updateCount = 0;
+
+    //Pipe used as a wakeup object.
+    private final Pipe wakeupPipe;
+
+    // File descriptors corresponding to source and sink
+    private final Socket wakeupSourceFd, wakeupSinkFd;
+
+    // Lock for interrupt triggering and clearing
+    private final Object interruptLock = new Object();
+    private volatile boolean interruptTriggered = false;
+
+    // class for fdMap entries
+    private final class MapEntry implements AsyncCallback.Method
+    {
+        final SelectionKeyImpl ski;
+        final Socket socket;
+        final AsyncCallback callback = new AsyncCallback(this);
+        long updateCount = 0;
+        long clearedCount = 0;
+        // a zero byte receive is outstanding
+        volatile boolean receivePending;
+        // the socket doesn't support the zero byte receive
+        boolean noReceive;
+        // cleared when the key is deregistered
+        volatile boolean valid = true;
+
+        MapEntry(SelectionKeyImpl ski)
+        {
+            this.ski = ski;
+            this.socket = ski.getSocket();
+        }
+
+        public void Invoke(IAsyncResult ar)
+        {
+            try
+            {
+                socket.EndReceive(ar);
+            }
+            catch (Throwable _)
+            {
+                // the socket is readable in the sense that a read won't block
+            }
+            receivePending = false;
+            if (valid)
+            {
+                readyQueue.add(this);
+                wakeup();
+            }
+        }
+    }
+    private HashMap<Socket, MapEntry> fdMap = new HashMap<Socket, MapEntry>();
+
+    // Keys whose interest set changed since the last select
+    private final ConcurrentLinkedQueue<SelectionKeyImpl> updateQueue = new ConcurrentLinkedQueue<SelectionKeyImpl>();
+
+    // Entries whose zero byte receive completed
+    private final ConcurrentLinkedQueue<MapEntry> readyQueue = new ConcurrentLinkedQueue<MapEntry>();
+
+    // Entries that are checked with Socket.Select
+    private final HashSet<MapEntry> polled = new HashSet<MapEntry>();
+
+    // Entries that were reported readable and need a new receive
+    private final java.util.ArrayList<MapEntry> rearm = new java.util.ArrayList<MapEntry>();
+
+    DotNetAsyncSelectorImpl(SelectorProvider sp) throws IOException
+    {
+        super(sp);
+        wakeupPipe = Pipe.open();
+        wakeupSourceFd = ((SelChImpl)wakeupPipe.source()).getFD().getSocket();
+
+        // Disable the Nagle algorithm so that the wakeup is more immediate
+        SinkChannelImpl sink = (SinkChannelImpl)wakeupPipe.sink();
+        (sink.sc).socket().setTcpNoDelay(true);
+        wakeupSinkFd = ((SelChImpl)sink).getFD().getSocket();
+    }
+
+    protected int doSelect(long timeout) throws IOException
+    {
+        if (fdMap == null)
+            throw new ClosedSelectorException();
+        processDeregisterQueue();
+
+        SelectionKeyImpl ski;
+        while ((ski = updateQueue.poll()) != null)
+        {
+            MapEntry me = fdMap.get(ski.getSocket());
+            if (me != null && me.ski == ski)
+                update(me);
+        }
+        for (int i = 0; i < rearm.size(); i++)
+        {
+            MapEntry me = rearm.get(i);
+            if (me.valid)
+                update(me);
+        }
+        rearm.clear();
+
+        ArrayList read = new ArrayList();
+        ArrayList write = new ArrayList();
+        ArrayList error = new ArrayList();
+        java.util.ArrayList<MapEntry> connected = null;
+        for (MapEntry me : polled)
+        {
+            int ops = me.ski.nioInterestOps();
+            if (me.ski.channel() instanceof SocketChannelImpl)
+            {
+                if (((SocketChannelImpl)me.ski.channel()).isConnected())
+                {
+                    if (canReceive(me, ops))
+                    {
+                        // connect completed, watch it with a receive from now on
+                        if (connected == null)
+                            connected = new java.util.ArrayList<MapEntry>();
+                        connected.add(me);
+                        continue;
+                    }
+                    ops &= SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+                }
+                else
+                {
+                    ops &= SelectionKey.OP_CONNECT;
+                }
+            }
+            if ((ops & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT)) != 0)
+            {
+                read.Add(me.socket);
+            }
+            if ((ops & (SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT)) != 0)
+            {
+                write.Add(me.socket);
+            }
+            if ((ops & SelectionKey.OP_CONNECT) != 0)
+            {
+                error.Add(me.socket);
+            }
+        }
+        if (connected != null)
+        {
+            for (MapEntry me : connected)
+                update(me);
+        }
+        read.Add(wakeupSourceFd);
+        if (!readyQueue.isEmpty())
+        {
+            timeout = 0;
+        }
+        try
+        {
+            begin();
+            int microSeconds = 1000 * (int)Math.min(Integer.MAX_VALUE / 1000, timeout);
+            try
+            {
+                if (false) throw new SocketException();
+                // FXBUG docs say that -1 is infinite timeout, but that doesn't appear to work
+                Socket.Select(read, write, error, timeout < 0 ? Integer.MAX_VALUE : microSeconds);
+            }
+            catch (SocketException _)
+            {
+                read.Clear();
+                write.Clear();
+                error.Clear();
+            }
+        }
+        finally
+        {
+            end();
+        }
+        processDeregisterQueue();
+        updateCount++;
+        int updated = 0;
+        MapEntry me;
+        while ((me = readyQueue.poll()) != null)
+        {
+            if (me.valid)
+            {
+                updated += processEntry(me, Net.POLLIN);
+                rearm.add(me);
+            }
+        }
+        updated += processFDSet(read, Net.POLLIN);
+        updated += processFDSet(write, Net.POLLCONN | Net.POLLOUT);
+        updated += processFDSet(error, Net.POLLIN | Net.POLLCONN | Net.POLLOUT);
+        // Done with poll(). Set wakeupSocket to nonsignaled  for the next run.
+        resetWakeupSocket();
+        return updated;
+    }
+
+    // Decides how the entry is watched, based on its current interest set.
+    private void update(MapEntry me)
+    {
+        int ops = me.ski.nioInterestOps();
+        if (canReceive(me, ops))
+        {
+            polled.remove(me);
+            if (!me.receivePending)
+            {
+                beginReceive(me);
+            }
+        }
+        else if (ops != 0)
+        {
+            polled.add(me);
+        }
+        else
+        {
+            polled.remove(me);
+        }
+    }
+
+    private static boolean canReceive(MapEntry me, int ops)
+    {
+        if (ops != SelectionKey.OP_READ || me.noReceive)
+            return false;
+        if (me.socket.get_SocketType().Value != SocketType.Stream)
+            return false;
+        if (me.ski.channel() instanceof SocketChannelImpl)
+            return ((SocketChannelImpl)me.ski.channel()).isConnected();
+        return me.socket.get_Connected();
+    }
+
+    private void beginReceive(MapEntry me)
+    {
+        me.receivePending = true;
+        try
+        {
+            me.socket.BeginReceive(EMPTY, 0, 0, SocketFlags.wrap(SocketFlags.None), me.callback, null);
+        }
+        catch (Throwable _)
+        {
+            // fall back to Socket.Select for this socket
+            me.receivePending = false;
+            me.noReceive = true;
+            polled.add(me);
+        }
+    }
+
+    private int processFDSet(ArrayList sockets, int rOps)
+    {
+        int numKeysUpdated = 0;
+        for (int i = 0; i < sockets.get_Count(); i++)
+        {
+            Socket desc = (Socket)sockets.get_Item(i);
+            if (desc == wakeupSourceFd)
+            {
+                synchronized (interruptLock)
+                {
+                    interruptTriggered = true;
+                }
+                continue;
+            }
+            MapEntry me = fdMap.get(desc);
+            // If me is null, the key was deregistered in the previous
+            // processDeregisterQueue.
+            if (me == null)
+                continue;
+            numKeysUpdated += processEntry(me, rOps);
+        }
+        return numKeysUpdated;
+    }
+
+    private int processEntry(MapEntry me, int rOps)
+    {
+        SelectionKeyImpl sk = me.ski;
+        int numKeysUpdated = 0;
+        if (selectedKeys.contains(sk))
+        { // Key in selected set
+            if (me.clearedCount != updateCount)
+            {
+                if (sk.channel.translateAndSetReadyOps(rOps, sk) &&
+                    (me.updateCount != updateCount))
+                {
+                    me.updateCount = updateCount;
+                    numKeysUpdated++;
+                }
+            }
+            else
+            { // The readyOps have been set; now add
+                if (sk.channel.translateAndUpdateReadyOps(rOps, sk) &&
+                    (me.updateCount != updateCount))
+                {
+                    me.updateCount = updateCount;
+                    numKeysUpdated++;
+                }
+            }
+            me.clearedCount = updateCount;
+        }
+        else
+        { // Key is not in selected set yet
+            if (me.clearedCount != updateCount)
+            {
+                sk.channel.translateAndSetReadyOps(rOps, sk);
+                if ((sk.nioReadyOps() & sk.nioInterestOps()) != 0)
+                {
+                    selectedKeys.add(sk);
+                    me.updateCount = updateCount;
+                    numKeysUpdated++;
+                }
+            }
+            else
+            { // The readyOps have been set; now add
+                sk.channel.translateAndUpdateReadyOps(rOps, sk);
+                if ((sk.nioReadyOps() & sk.nioInterestOps()) != 0)
+                {
+                    selectedKeys.add(sk);
+                    me.updateCount = updateCount;
+                    numKeysUpdated++;
+                }
+            }
+            me.clearedCount = updateCount;
+        }
+        return numKeysUpdated;
+    }
+
+    protected void implClose() throws IOException
+    {
+        if (fdMap != null)
+        {
+            // prevent further wakeup
+            synchronized (interruptLock) {
+                interruptTriggered = true;
+            }
+            wakeupPipe.sink().close();
+            wakeupPipe.source().close();
+            for (MapEntry me : fdMap.values())
+            { // Deregister channels
+                me.valid = false;
+                SelectionKeyImpl ski = me.ski;
+                deregister(ski);
+                SelectableChannel selch = ski.channel();
+                if (!selch.isOpen() && !selch.isRegistered())
+                    ((SelChImpl)selch).kill();
+            }
+            selectedKeys = null;
+            fdMap = null;
+            polled.clear();
+            rearm.clear();
+            readyQueue.clear();
+            updateQueue.clear();
+        }
+    }
+
+    protected void implRegister(SelectionKeyImpl ski)
+    {
+        fdMap.put(ski.getSocket(), new MapEntry(ski));
+        keys.add(ski);
+    }
+
+    protected void implDereg(SelectionKeyImpl ski) throws IOException
+    {
+        MapEntry me = fdMap.remove(ski.getSocket());
+        if (me != null)
+        {
+            // an outstanding receive completes on its own and is ignored
+            me.valid = false;
+            polled.remove(me);
+        }
+        keys.remove(ski);
+        selectedKeys.remove(ski);
+        deregister(ski);
+        SelectableChannel selch = ski.channel();
+        if (!selch.isOpen() && !selch.isRegistered())
+        {
+            ((SelChImpl)selch).kill();
+        }
+    }
+
+    public void putEventOps(SelectionKeyImpl ski, int ops)
+    {
+        // picked up by the next select
+        updateQueue.add(ski);
+    }
+
+    public java.nio.channels.Selector wakeup()
+    {
+        synchronized (interruptLock)
+        {
+            if (!interruptTriggered)
+            {
+                setWakeupSocket();
+                interruptTriggered = true;
+            }
+        }
+        return this;
+    }
+
+    // Sets Windows wakeup socket to a signaled state.
+    private void setWakeupSocket() {
+        wakeupSinkFd.Send(new byte[1]);
+    }
+
+    // Sets Windows wakeup socket to a non-signaled state.
+    private void resetWakeupSocket() {
+        synchronized (interruptLock)
+        {
+            if (interruptTriggered == false)
+                return;
+            resetWakeupSocket0(wakeupSourceFd);
+            interruptTriggered = false;
+        }
+    }
+
+    private static void resetWakeupSocket0(Socket wakeupSourceFd)
+    {
+        while (wakeupSourceFd.get_Available() > 0)
+        {
+            wakeupSourceFd.Receive(new byte[1]);
+        }
+    }
+}
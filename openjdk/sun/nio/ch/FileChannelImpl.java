@@ -31,9 +31,11 @@ import cli.System.IO.FileStream;
 import cli.System.Runtime.InteropServices.DllImportAttribute;
 import java.io.FileDescriptor;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.Channel;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
@@ -42,6 +44,7 @@ import java.nio.channels.NonReadableChannelException;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.OverlappingFileLockException;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.WritableByteChannel;
 import java.security.AccessController;
 import java.util.ArrayList;
@@ -435,6 +438,66 @@ public class FileChannelImpl
         }
     }
 
+    // Buffer size for transfers between trusted channels
+    private static final int TRUSTED_TRANSFER_SIZE = 256 * 1024;
+
+    // Per-thread buffer for transfers between trusted channels.  All our
+    // I/O goes through byte arrays, so a heap buffer avoids the copy a
+    // direct or mapped buffer would need and the buffer is reused because
+    // trusted channels don't hold on to it.
+    private static final ThreadLocal<SoftReference<ByteBuffer>> transferBuffer =
+        new ThreadLocal<SoftReference<ByteBuffer>>();
+
+    private static ByteBuffer getTransferBuffer() {
+        SoftReference<ByteBuffer> ref = transferBuffer.get();
+        ByteBuffer bb = ref == null ? null : ref.get();
+        if (bb == null) {
+            bb = ByteBuffer.allocate(TRUSTED_TRANSFER_SIZE);
+            transferBuffer.set(new SoftReference<ByteBuffer>(bb));
+        }
+        bb.clear();
+        return bb;
+    }
+
+    private static boolean isTrusted(Channel ch) {
+        return (ch instanceof FileChannelImpl) || (ch instanceof SelChImpl);
+    }
+
+    private long transferToTrustedChannel(long position, int icount,
+                                          WritableByteChannel target)
+        throws IOException
+    {
+        // Trusted target: Use a large reusable buffer
+        boolean isSelChImpl = (target instanceof SelChImpl);
+        ByteBuffer bb = getTransferBuffer();
+        long tw = 0;                    // Total bytes written
+        long pos = position;
+        try {
+            while (tw < icount) {
+                bb.limit((int)Math.min(icount - tw, (long)TRUSTED_TRANSFER_SIZE));
+                int nr = read(bb, pos);
+                if (nr <= 0)
+                    break;
+                bb.flip();
+                // ## Bug: Will block writing target if this channel
+                // ##      is asynchronously closed
+                int nw = target.write(bb);
+                tw += nw;
+                if (nw != nr)
+                    break;
+                pos += nw;
+                bb.clear();
+                if (isSelChImpl && !((SelectableChannel)target).isBlocking())
+                    break;              // one attempt for non-blocking sockets
+            }
+            return tw;
+        } catch (IOException x) {
+            if (tw > 0)
+                return tw;
+            throw x;
+        }
+    }
+
     public long transferTo(long position, long count,
                            WritableByteChannel target)
         throws IOException
@@ -456,6 +519,10 @@ public class FileChannelImpl
         if ((sz - position) < icount)
             icount = (int)(sz - position);
 
+        // Fast path for file and socket targets
+        if (isTrusted(target))
+            return transferToTrustedChannel(position, icount, target);
+
         // Slow path for untrusted targets
         return transferToArbitraryChannel(position, icount, target);
     }
@@ -466,7 +533,34 @@ public class FileChannelImpl
     {
         if (!src.readable)
             throw new NonReadableChannelException();
-        return transferFromArbitraryChannel(src, position, count);
+        synchronized (src.positionLock) {
+            long startPosition = src.position();
+            long maxSize = Math.min(count, src.size() - startPosition);
+            ByteBuffer bb = getTransferBuffer();
+            long tw = 0;                // Total bytes written
+            long pos = position;
+            try {
+                while (tw < maxSize) {
+                    bb.limit((int)Math.min(maxSize - tw, (long)TRUSTED_TRANSFER_SIZE));
+                    int nr = src.read(bb, startPosition + tw);
+                    if (nr <= 0)
+                        break;
+                    bb.flip();
+                    int nw = write(bb, pos);
+                    tw += nw;
+                    if (nw != nr)
+                        break;
+                    pos += nw;
+                    bb.clear();
+                }
+            } catch (IOException x) {
+                if (tw == 0)
+                    throw x;
+            }
+            // Only advance the source by what was actually written
+            src.position(startPosition + tw);
+            return tw;
+        }
     }
 
     private static final int TRANSFER_SIZE = 8192;
@@ -475,14 +569,22 @@ public class FileChannelImpl
                                               long position, long count)
         throws IOException
     {
-        // Untrusted target: Use a newly-erased buffer
-        int c = (int)Math.min(count, TRANSFER_SIZE);
-        ByteBuffer bb = ByteBuffer.allocate(c);
+        ByteBuffer bb;
+        int size;
+        if (src instanceof SelChImpl) {
+            // Trusted source: Use a large reusable buffer
+            bb = getTransferBuffer();
+            size = TRUSTED_TRANSFER_SIZE;
+        } else {
+            // Untrusted source: Use a newly-erased buffer
+            bb = ByteBuffer.allocate((int)Math.min(count, TRANSFER_SIZE));
+            size = TRANSFER_SIZE;
+        }
         long tw = 0;                    // Total bytes written
         long pos = position;
         try {
             while (tw < count) {
-                bb.limit((int)Math.min((count - tw), (long)TRANSFER_SIZE));
+                bb.limit((int)Math.min((count - tw), (long)size));
                 // ## Bug: Will block reading src if this channel
                 // ##      is asynchronously closed
                 int nr = src.read(bb);
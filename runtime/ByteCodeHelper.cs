@@ -596,22 +596,8 @@ namespace IKVM.Runtime
 				object[] dst1 = dest as object[];
 				if(src1 != null && dst1 != null)
 				{
-					// for small copies, don't bother comparing the types as this is relatively expensive
-					if(len > 50 && src.GetType() == dest.GetType())
-					{
-						arraycopy_fast(src1, srcStart, dst1, destStart, len);
-						return;
-					}
-					else
-					{
-						for(; len > 0; len--)
-						{
-							// NOTE we don't need to catch ArrayTypeMismatchException & IndexOutOfRangeException, because
-							// they automatically get converted to the Java equivalents anyway.
-							dst1[destStart++] = src1[srcStart++];
-						}
-						return;
-					}
+					arraycopy_object(src1, srcStart, dst1, destStart, len);
+					return;
 				}
 				else if(src.GetType() != dest.GetType() &&
 						(IsPrimitiveArrayType(src.GetType()) || IsPrimitiveArrayType(dest.GetType())))
@@ -637,7 +623,65 @@ namespace IKVM.Runtime
 
 		private static bool IsPrimitiveArrayType(Type type)
 		{
-			return type.IsArray && ClassLoaderWrapper.GetWrapperFromType(type.GetElementType()).IsPrimitive;
+			// these are the only array types with a primitive TypeWrapper element type,
+			// so we don't need to look up the TypeWrapper of the element type
+			return type == typeof(int[])
+				|| type == typeof(byte[])
+				|| type == typeof(char[])
+				|| type == typeof(long[])
+				|| type == typeof(double[])
+				|| type == typeof(float[])
+				|| type == typeof(short[])
+				|| type == typeof(bool[]);
+		}
+
+		// copies up to this number of elements with a loop, instead of calling Array.Copy
+		private const int SmallObjectArrayCopy = 8;
+
+		// this is called directly by the compiler when both arrays are statically known to be reference arrays
+		[DebuggerStepThroughAttribute]
+		public static void arraycopy_object(object[] src, int srcStart, object[] dest, int destStart, int len)
+		{
+#if !FIRST_PASS
+			if(src == null || dest == null)
+			{
+				throw new java.lang.NullPointerException();
+			}
+			if(len < 0 || srcStart < 0 || destStart < 0 || srcStart > src.Length - len || destStart > dest.Length - len)
+			{
+				throw new java.lang.ArrayIndexOutOfBoundsException();
+			}
+			if(src == dest)
+			{
+				// Array.Copy has the required memmove semantics
+				Array.Copy(src, srcStart, dest, destStart, len);
+			}
+			else if(len <= SmallObjectArrayCopy)
+			{
+				for(; len > 0; len--)
+				{
+					// NOTE we don't need to catch ArrayTypeMismatchException, because
+					// it automatically gets converted to the Java equivalent anyway.
+					dest[destStart++] = src[srcStart++];
+				}
+			}
+			else
+			{
+				Type destType = dest.GetType();
+				if(destType == src.GetType() || destType == typeof(object[]))
+				{
+					// no per element store checks are needed, so Array.Copy can do a block copy
+					Array.Copy(src, srcStart, dest, destStart, len);
+				}
+				else
+				{
+					for(; len > 0; len--)
+					{
+						dest[destStart++] = src[srcStart++];
+					}
+				}
+			}
+#endif // !FIRST_PASS
 		}
 		
 		[DebuggerStepThroughAttribute]
@@ -802,8 +846,15 @@ namespace IKVM.Runtime
 #endif
 		}
 
+		// In a 64-bit process aligned 64-bit loads and stores are atomic, so we only need
+		// Interlocked (or the NO_REF_EMIT lock) to make volatile long/double fields atomic
+		// in a 32-bit process. Note that the JIT treats IntPtr.Size as a constant.
 		public static long VolatileRead(ref long v)
 		{
+			if (IntPtr.Size == 8)
+			{
+				return Thread.VolatileRead(ref v);
+			}
 #if NO_REF_EMIT && !FIRST_PASS
 			lock (VolatileLongDoubleFieldWrapper.lockObject)
 			{
@@ -817,6 +868,11 @@ namespace IKVM.Runtime
 		public static void VolatileWrite(ref long v, long newValue)
 		{
 #if NO_REF_EMIT && !FIRST_PASS
+			if (IntPtr.Size == 8)
+			{
+				Interlocked.Exchange(ref v, newValue);
+				return;
+			}
 			lock (VolatileLongDoubleFieldWrapper.lockObject)
 			{
 				v = newValue;
@@ -828,6 +884,10 @@ namespace IKVM.Runtime
 
 		public static double VolatileRead(ref double v)
 		{
+			if (IntPtr.Size == 8)
+			{
+				return Thread.VolatileRead(ref v);
+			}
 #if NO_REF_EMIT && !FIRST_PASS
 			lock (VolatileLongDoubleFieldWrapper.lockObject)
 			{
@@ -841,6 +901,11 @@ namespace IKVM.Runtime
 		public static void VolatileWrite(ref double v, double newValue)
 		{
 #if NO_REF_EMIT && !FIRST_PASS
+			if (IntPtr.Size == 8)
+			{
+				Interlocked.Exchange(ref v, newValue);
+				return;
+			}
 			lock (VolatileLongDoubleFieldWrapper.lockObject)
 			{
 				v = newValue;
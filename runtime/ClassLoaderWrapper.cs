@@ -86,7 +86,7 @@ namespace IKVM.Internal
 	abstract class TypeWrapperFactory
 	{
 		internal abstract ModuleBuilder ModuleBuilder { get; }
-		internal abstract TypeWrapper DefineClassImpl(Dictionary<string, TypeWrapper> types, TypeWrapper host, ClassFile f, ClassLoaderWrapper classLoader, ProtectionDomain protectionDomain);
+		internal abstract TypeWrapper DefineClassImpl(ConcurrentReadDictionary<string, TypeWrapper> types, TypeWrapper host, ClassFile f, ClassLoaderWrapper classLoader, ProtectionDomain protectionDomain);
 		internal abstract bool ReserveName(string name);
 		internal abstract string AllocMangledName(DynamicTypeWrapper tw);
 		internal abstract Type DefineUnloadable(string name);
@@ -98,10 +98,91 @@ namespace IKVM.Internal
 	}
 #endif // !STUB_GENERATOR
 
+	// A dictionary that can be read without locking while (at most) one thread modifies it,
+	// so all writers must lock the dictionary instance. This relies on the documented
+	// multiple readers / single writer thread safety of Hashtable.
+	sealed class ConcurrentReadDictionary<TKey, TValue>
+		where TKey : class
+		where TValue : class
+	{
+		private static readonly object NullValue = new object();
+		private readonly System.Collections.Hashtable table = new System.Collections.Hashtable();
+
+		internal bool TryGetValue(TKey key, out TValue value)
+		{
+			object obj = table[key];
+			if(obj == null)
+			{
+				value = null;
+				return false;
+			}
+			value = obj == NullValue ? null : (TValue)obj;
+			return true;
+		}
+
+		internal bool ContainsKey(TKey key)
+		{
+			return table[key] != null;
+		}
+
+		internal TValue this[TKey key]
+		{
+			get
+			{
+				TValue value;
+				if(!TryGetValue(key, out value))
+				{
+					throw new KeyNotFoundException();
+				}
+				return value;
+			}
+			set
+			{
+				table[key] = (object)value ?? NullValue;
+			}
+		}
+
+		internal void Add(TKey key, TValue value)
+		{
+			table.Add(key, (object)value ?? NullValue);
+		}
+
+		internal void Remove(TKey key)
+		{
+			table.Remove(key);
+		}
+	}
+
+	sealed class DefineClassInProgress
+	{
+		internal readonly Thread thread = Thread.CurrentThread;
+		private bool done;
+
+		internal void Wait()
+		{
+			lock(this)
+			{
+				while(!done)
+				{
+					Monitor.Wait(this);
+				}
+			}
+		}
+
+		internal void Done()
+		{
+			lock(this)
+			{
+				done = true;
+				Monitor.PulseAll(this);
+			}
+		}
+	}
+
 	class ClassLoaderWrapper
 	{
 		private static readonly object wrapperLock = new object();
-		private static readonly Dictionary<Type, TypeWrapper> globalTypeToTypeWrapper = new Dictionary<Type, TypeWrapper>();
+		private static readonly ConcurrentReadDictionary<Type, TypeWrapper> globalTypeToTypeWrapper = new ConcurrentReadDictionary<Type, TypeWrapper>();
 #if STATIC_COMPILER || STUB_GENERATOR
 		private static ClassLoaderWrapper bootstrapClassLoader;
 #else
@@ -114,12 +195,13 @@ namespace IKVM.Internal
 #if !STUB_GENERATOR
 		private TypeWrapperFactory factory;
 #endif // !STUB_GENERATOR
-		private readonly Dictionary<string, TypeWrapper> types = new Dictionary<string, TypeWrapper>();
-		private readonly Dictionary<string, Thread> defineClassInProgress = new Dictionary<string, Thread>();
+		// types is read without locking, all modifications (and defineClassInProgress) are protected by lock(types)
+		private readonly ConcurrentReadDictionary<string, TypeWrapper> types = new ConcurrentReadDictionary<string, TypeWrapper>();
+		private readonly Dictionary<string, DefineClassInProgress> defineClassInProgress = new Dictionary<string, DefineClassInProgress>();
 		private List<IntPtr> nativeLibraries;
 		private readonly CodeGenOptions codegenoptions;
 #if CLASSGC
-		private Dictionary<Type, TypeWrapper> typeToTypeWrapper;
+		private ConcurrentReadDictionary<Type, TypeWrapper> typeToTypeWrapper;
 		private static ConditionalWeakTable<Assembly, ClassLoaderWrapper> dynamicAssemblies;
 #endif
 		private static readonly Dictionary<Type, string> remappedTypes = new Dictionary<Type, string>();
@@ -211,10 +293,7 @@ namespace IKVM.Internal
 				return FindOrLoadArrayClass(name, LoadMode.Find);
 			}
 			TypeWrapper tw;
-			lock (types)
-			{
-				types.TryGetValue(name, out tw);
-			}
+			types.TryGetValue(name, out tw);
 			return tw ?? FindLoadedClassLazy(name);
 		}
 
@@ -443,6 +522,7 @@ namespace IKVM.Internal
 
 		private TypeWrapper DefineClassCritical(ClassFile f, ProtectionDomain protectionDomain)
 		{
+			DefineClassInProgress inProgress = new DefineClassInProgress();
 			lock(types)
 			{
 				if(types.ContainsKey(f.Name))
@@ -451,7 +531,7 @@ namespace IKVM.Internal
 				}
 				// mark the type as "loading in progress", so that we can detect circular dependencies.
 				types.Add(f.Name, null);
-				defineClassInProgress.Add(f.Name, Thread.CurrentThread);
+				defineClassInProgress.Add(f.Name, inProgress);
 			}
 			try
 			{
@@ -468,8 +548,8 @@ namespace IKVM.Internal
 						types.Remove(f.Name);
 					}
 					defineClassInProgress.Remove(f.Name);
-					Monitor.PulseAll(types);
 				}
+				inProgress.Done();
 			}
 		}
 
@@ -492,7 +572,7 @@ namespace IKVM.Internal
 							{
 								Interlocked.CompareExchange(ref dynamicAssemblies, new ConditionalWeakTable<Assembly, ClassLoaderWrapper>(), null);
 							}
-							typeToTypeWrapper = new Dictionary<Type, TypeWrapper>();
+							typeToTypeWrapper = new ConcurrentReadDictionary<Type, TypeWrapper>();
 							DynamicClassLoader instance = DynamicClassLoader.Get(this);
 							dynamicAssemblies.Add(instance.ModuleBuilder.Assembly.ManifestModule.Assembly, this);
 							this.factory = instance;
@@ -571,27 +651,27 @@ namespace IKVM.Internal
 		private TypeWrapper LoadRegisteredOrPendingClass(string name)
 		{
 			TypeWrapper tw;
-			lock (types)
+			if (types.TryGetValue(name, out tw) && tw == null)
 			{
-				if (types.TryGetValue(name, out tw) && tw == null)
+				DefineClassInProgress inProgress;
+				lock (types)
 				{
-					Thread defineThread;
-					if (defineClassInProgress.TryGetValue(name, out defineThread))
+					if (!defineClassInProgress.TryGetValue(name, out inProgress))
 					{
-						if (Thread.CurrentThread == defineThread)
-						{
-							throw new ClassCircularityError(name);
-						}
-						// the requested class is currently being defined by another thread,
-						// so we have to wait on that
-						while (defineClassInProgress.ContainsKey(name))
-						{
-							Monitor.Wait(types);
-						}
-						// the defineClass may have failed, so we need to use TryGetValue
+						// the defineClass completed (or failed) after our unlocked lookup
 						types.TryGetValue(name, out tw);
+						return tw;
 					}
 				}
+				if (Thread.CurrentThread == inProgress.thread)
+				{
+					throw new ClassCircularityError(name);
+				}
+				// the requested class is currently being defined by another thread,
+				// so we have to wait on that
+				inProgress.Wait();
+				// the defineClass may have failed, so we need to use TryGetValue
+				types.TryGetValue(name, out tw);
 			}
 			return tw;
 		}
@@ -1098,10 +1178,7 @@ namespace IKVM.Internal
 			Debug.Assert(!type.IsPointer);
 			Debug.Assert(!type.IsByRef);
 			TypeWrapper wrapper;
-			lock(globalTypeToTypeWrapper)
-			{
-				globalTypeToTypeWrapper.TryGetValue(type, out wrapper);
-			}
+			globalTypeToTypeWrapper.TryGetValue(type, out wrapper);
 			if(wrapper != null)
 			{
 				return wrapper;
@@ -1138,22 +1215,19 @@ namespace IKVM.Internal
 				ClassLoaderWrapper loader = null;
 				if(dynamicAssemblies != null && dynamicAssemblies.TryGetValue(asm, out loader))
 				{
-					lock(loader.typeToTypeWrapper)
+					TypeWrapper tw;
+					if(loader.typeToTypeWrapper.TryGetValue(type, out tw))
 					{
-						TypeWrapper tw;
-						if(loader.typeToTypeWrapper.TryGetValue(type, out tw))
-						{
-							return tw;
-						}
-						// it must be an anonymous type then
-						Debug.Assert(AnonymousTypeWrapper.IsAnonymous(type));
+						return tw;
 					}
+					// it must be an anonymous type then
+					Debug.Assert(AnonymousTypeWrapper.IsAnonymous(type));
 				}
 #endif
 #if !STATIC_COMPILER && !STUB_GENERATOR
 				if(AnonymousTypeWrapper.IsAnonymous(type))
 				{
-					Dictionary<Type, TypeWrapper> typeToTypeWrapper;
+					ConcurrentReadDictionary<Type, TypeWrapper> typeToTypeWrapper;
 #if CLASSGC
 					typeToTypeWrapper = loader != null ? loader.typeToTypeWrapper : globalTypeToTypeWrapper;
 #else
@@ -1344,7 +1418,7 @@ namespace IKVM.Internal
 #if !STATIC_COMPILER
 			TypeWrapper.AssertFinished(type);
 #endif
-			Dictionary<Type, TypeWrapper> dict;
+			ConcurrentReadDictionary<Type, TypeWrapper> dict;
 #if CLASSGC
 			dict = typeToTypeWrapper ?? globalTypeToTypeWrapper;
 #else
@@ -61,6 +61,11 @@ namespace java
 			public class CallSite { }
 		}
 
+		namespace @ref
+		{
+			public class Reference { }
+		}
+
 		namespace reflect
 		{
 			public class Constructor : Executable { }
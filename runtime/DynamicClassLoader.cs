@@ -223,7 +223,7 @@ namespace IKVM.Internal
 			return mangledTypeName;
 		}
 
-		internal sealed override TypeWrapper DefineClassImpl(Dictionary<string, TypeWrapper> types, TypeWrapper host, ClassFile f, ClassLoaderWrapper classLoader, ProtectionDomain protectionDomain)
+		internal sealed override TypeWrapper DefineClassImpl(ConcurrentReadDictionary<string, TypeWrapper> types, TypeWrapper host, ClassFile f, ClassLoaderWrapper classLoader, ProtectionDomain protectionDomain)
 		{
 #if STATIC_COMPILER
 			AotTypeWrapper type = new AotTypeWrapper(f, (CompilerClassLoader)classLoader);
@@ -409,6 +409,13 @@ namespace IKVM.Internal
 		}
 
 #if !STATIC_COMPILER
+		// NOTE the saved images are only meant for debugging, they can't be used as a cache of compiled classes
+		// for subsequent runs. The emitted code refers directly to the types in the dynamic assemblies of other
+		// class loaders (which have no stable identity across runs), so the validity of a saved class depends
+		// on every class it (transitively) links against and not just on its own class file bytes. Also, any
+		// type loaded from a saved assembly would end up belonging to an AssemblyClassLoader instead of the
+		// Java class loader that defined it. To avoid compiling the classes from a jar at every startup, compile
+		// the jar with ikvmc and use ikvm.runtime.ClassPathAssemblyClassLoader (or reference the assembly).
 		internal static void SaveDebugImages()
 		{
 			Console.Error.WriteLine("Saving dynamic assemblies...");
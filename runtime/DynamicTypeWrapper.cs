@@ -4072,6 +4072,7 @@ namespace IKVM.Internal
 			private TypeBuilder interfaceHelperMethodsTypeBuilder;
 #else
 			private List<object> liveObjects;
+			private MethodAnalysis[] methodAnalysis;
 #endif
 
 			private struct Item
@@ -4291,6 +4292,8 @@ namespace IKVM.Internal
 				}
 #if STATIC_COMPILER
 				TypeBuilder tbDefaultMethods = null;
+#else
+				AnalyzeMethods(methods);
 #endif
 				bool basehasclinit = wrapper.BaseTypeWrapper != null && wrapper.BaseTypeWrapper.HasStaticInitializer;
 				int clinitIndex = -1;
@@ -6300,6 +6303,70 @@ namespace IKVM.Internal
 				}
 			}
 
+#if !STATIC_COMPILER
+			// Runs the verifier over the methods of the class on the thread pool, the IL is still emitted serially
+			// by Compiler.Compile (which picks up the results through GetMethodAnalysis), because all method bodies
+			// have to be emitted before the TypeBuilder can be baked. This is safe while we hold the type's lock,
+			// because the verifier only looks at classes and members that were already linked by JavaTypeImpl.Finish.
+			// Parallel analysis can be disabled with -Dikvm.parallelverify=false
+			private void AnalyzeMethods(MethodWrapper[] methods)
+			{
+#if NET_4_0
+				const int MinimumMethodCount = 4;
+				if (Environment.ProcessorCount == 1
+					|| "false".Equals(java.lang.Props.props.getProperty("ikvm.parallelverify"), StringComparison.OrdinalIgnoreCase))
+				{
+					return;
+				}
+				List<int> work = new List<int>();
+				for (int i = 0; i < classFile.Methods.Length; i++)
+				{
+					ClassFile.Method m = classFile.Methods[i];
+					if (!m.IsAbstract && !m.IsNative && methods[i].GetMethod() != null)
+					{
+						work.Add(i);
+					}
+				}
+				if (work.Count < MinimumMethodCount)
+				{
+					return;
+				}
+				ClassLoaderWrapper classLoader = wrapper.GetClassLoader();
+				MethodAnalysis[] results = new MethodAnalysis[classFile.Methods.Length];
+				// the first method is analyzed on this thread, to make sure the verifier's static state
+				// is initialized before any worker threads get to it
+				results[work[0]] = AnalyzeMethod(methods, work[0], classLoader);
+				System.Threading.Tasks.Parallel.For(1, work.Count, delegate(int i)
+				{
+					results[work[i]] = AnalyzeMethod(methods, work[i], classLoader);
+				});
+				methodAnalysis = results;
+#endif
+			}
+
+			private MethodAnalysis AnalyzeMethod(MethodWrapper[] methods, int index, ClassLoaderWrapper classLoader)
+			{
+				try
+				{
+					return MethodAnalysis.Analyze(host, wrapper, methods[index], classFile, classFile.Methods[index], classLoader);
+				}
+				catch (Exception x)
+				{
+					return new MethodAnalysis(x);
+				}
+			}
+
+			internal MethodAnalysis GetMethodAnalysis(ClassFile.Method m)
+			{
+				if (methodAnalysis == null)
+				{
+					return null;
+				}
+				int index = Array.IndexOf(classFile.Methods, m);
+				return index == -1 ? null : methodAnalysis[index];
+			}
+#endif
+
 			private void CompileConstructorBody(FinishContext context, CodeEmitter ilGenerator, int methodIndex)
 			{
 				MethodWrapper[] methods = wrapper.GetMethods();
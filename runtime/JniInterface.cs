@@ -26,6 +26,7 @@ using System.Collections.Generic;
 using System.Diagnostics;
 using System.Text;
 using System.Reflection;
+using System.Reflection.Emit;
 using System.Runtime.InteropServices;
 using IKVM.Internal;
 
@@ -647,28 +648,219 @@ namespace IKVM.Runtime
 		}
 	}
 
-	static class GlobalRefs
+	// A table of JNI global or weak global references. Handles are recycled through a lock-free free list
+	// and the slots live in fixed size segments that never move, so creating, deleting and (most importantly)
+	// dereferencing a handle doesn't take a lock. Only adding a segment is done under a lock.
+	sealed class HandleTable
 	{
-		internal static System.Collections.ArrayList globalRefs = new System.Collections.ArrayList();
-		internal static readonly object weakRefLock = new object();
-		internal static GCHandle[] weakRefs = new GCHandle[16];
+		private const int SEGMENT_SHIFT = 10;
+		private const int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+		private const int SEGMENT_MASK = SEGMENT_SIZE - 1;
+		internal readonly string Name;
+		// handles are encoded in 30 bits (see GlobalRefs)
+		private readonly int maxHandles;
+		private volatile Segment[] segments = new Segment[4];
+		// the low 32 bits contain the index + 1 of the first free slot (or zero if the free list is empty),
+		// the high 32 bits are incremented on every change to avoid the ABA problem
+		private long freeList;
+		private int top;
+		private int live;
+		private int maxLive;
+		private long created;
 
-		internal static object Unwrap(int i)
+		private sealed class Segment
 		{
-			i = -i;
-			if ((i & (1 << 30)) != 0)
+			internal readonly object[] slots = new object[SEGMENT_SIZE];
+			internal readonly int[] nextFree = new int[SEGMENT_SIZE];
+		}
+
+		internal HandleTable(string name, int maxHandles)
+		{
+			this.Name = name;
+			this.maxHandles = maxHandles;
+		}
+
+		// returns -1 if the table is full
+		internal int Add(object value)
+		{
+			int index = PopFree();
+			if (index == -1)
+			{
+				// top is never incremented past maxHandles, so a full table stays full (instead of overflowing)
+				do
+				{
+					index = top;
+					if (index >= maxHandles)
+					{
+						return -1;
+					}
+				} while (System.Threading.Interlocked.CompareExchange(ref top, index + 1, index) != index);
+				AddSegment(index >> SEGMENT_SHIFT);
+			}
+			System.Threading.Thread.VolatileWrite(ref segments[index >> SEGMENT_SHIFT].slots[index & SEGMENT_MASK], value);
+			int count = System.Threading.Interlocked.Increment(ref live);
+			int max;
+			while (count > (max = maxLive) && System.Threading.Interlocked.CompareExchange(ref maxLive, count, max) != max)
+			{
+			}
+			System.Threading.Interlocked.Increment(ref created);
+			return index;
+		}
+
+		internal object Get(int index)
+		{
+			return segments[index >> SEGMENT_SHIFT].slots[index & SEGMENT_MASK];
+		}
+
+		// returns the value that was removed, or null if the slot was already free
+		internal object Remove(int index)
+		{
+			object value = System.Threading.Interlocked.Exchange(ref segments[index >> SEGMENT_SHIFT].slots[index & SEGMENT_MASK], null);
+			if (value != null)
 			{
-				lock (GlobalRefs.weakRefLock)
+				// only free the slot once, even if native code deletes the reference twice
+				System.Threading.Interlocked.Decrement(ref live);
+				PushFree(index);
+			}
+			return value;
+		}
+
+		private int PopFree()
+		{
+			for (; ; )
+			{
+				long head = System.Threading.Interlocked.Read(ref freeList);
+				int index = (int)head - 1;
+				if (index == -1)
 				{
-					return GlobalRefs.weakRefs[i - (1 << 30)].Target;
+					return -1;
+				}
+				int next = segments[index >> SEGMENT_SHIFT].nextFree[index & SEGMENT_MASK];
+				long update = (((head >> 32) + 1) << 32) | (uint)next;
+				if (System.Threading.Interlocked.CompareExchange(ref freeList, update, head) == head)
+				{
+					return index;
 				}
 			}
-			else
+		}
+
+		private void PushFree(int index)
+		{
+			Segment segment = segments[index >> SEGMENT_SHIFT];
+			for (; ; )
+			{
+				long head = System.Threading.Interlocked.Read(ref freeList);
+				segment.nextFree[index & SEGMENT_MASK] = (int)head;
+				long update = (((head >> 32) + 1) << 32) | (uint)(index + 1);
+				if (System.Threading.Interlocked.CompareExchange(ref freeList, update, head) == head)
+				{
+					return;
+				}
+			}
+		}
+
+		private void AddSegment(int segment)
+		{
+			Segment[] segs = segments;
+			if (segment < segs.Length && segs[segment] != null)
+			{
+				return;
+			}
+			lock (this)
+			{
+				segs = segments;
+				if (segment >= segs.Length)
+				{
+					int len = segs.Length;
+					while (segment >= len)
+					{
+						len *= 2;
+					}
+					Segment[] tmp = new Segment[len];
+					Array.Copy(segs, tmp, segs.Length);
+					segs = tmp;
+				}
+				if (segs[segment] == null)
+				{
+					segs[segment] = new Segment();
+				}
+				segments = segs;
+			}
+		}
+
+		internal int Live
+		{
+			get { return live; }
+		}
+
+		internal int MaxLive
+		{
+			get { return maxLive; }
+		}
+
+		internal long Created
+		{
+			get { return System.Threading.Interlocked.Read(ref created); }
+		}
+
+		internal int Capacity
+		{
+			get { return top; }
+		}
+	}
+
+	static class GlobalRefs
+	{
+		// global refs are encoded as -(index + 1) and weak global refs as -(index | (1 << 30))
+		internal const int WEAK_BIT = 1 << 30;
+		// the last global ref index is 2^30 - 2, because -(index + 1) must not have WEAK_BIT set
+		internal static readonly HandleTable globalRefs = new HandleTable("global", WEAK_BIT - 1);
+		// weak global refs are stored as WeakReference objects (that track resurrection)
+		internal static readonly HandleTable weakRefs = new HandleTable("weak global", WEAK_BIT);
+
+		static GlobalRefs()
+		{
+			// -Dikvm.jni.refstats=true prints the occupancy of the tables at exit,
+			// references that are still live at that point have probably been leaked.
+			// This runs on whatever thread happens to create the first global ref and a failure here would make
+			// the type unusable, so the property is read without a security check and registering the hook
+			// is best effort.
+			if ("true".Equals(JVM.GetSystemProperty("ikvm.jni.refstats"), StringComparison.OrdinalIgnoreCase))
 			{
-				lock (GlobalRefs.globalRefs)
+				try
+				{
+					java.lang.Runtime.getRuntime().addShutdownHook(new java.lang.Thread(ikvm.runtime.Delegates.toRunnable(DumpStats)));
+				}
+				catch (java.lang.IllegalStateException)
 				{
-					return GlobalRefs.globalRefs[i - 1];
+					// we're already shutting down
 				}
+				catch (java.lang.SecurityException)
+				{
+				}
+			}
+		}
+
+		private static void DumpStats()
+		{
+			foreach (HandleTable table in new HandleTable[] { globalRefs, weakRefs })
+			{
+				Console.Error.WriteLine("JNI {0} references: {1} live (possibly leaked), {2} max live, {3} created, {4} slots",
+					table.Name, table.Live, table.MaxLive, table.Created, table.Capacity);
+			}
+		}
+
+		internal static object Unwrap(int i)
+		{
+			i = -i;
+			if ((i & WEAK_BIT) != 0)
+			{
+				WeakReference weak = (WeakReference)weakRefs.Get(i - WEAK_BIT);
+				return weak == null ? null : weak.Target;
+			}
+			else
+			{
+				return globalRefs.Get(i - 1);
 			}
 		}
 	}
@@ -1830,19 +2022,13 @@ namespace IKVM.Runtime
 			{
 				return IntPtr.Zero;
 			}
-			lock(GlobalRefs.globalRefs)
+			int index = GlobalRefs.globalRefs.Add(o);
+			if(index == -1)
 			{
-				int index = GlobalRefs.globalRefs.IndexOf(null);
-				if(index >= 0)
-				{
-					GlobalRefs.globalRefs[index] = o;
-				}
-				else
-				{
-					index = GlobalRefs.globalRefs.Add(o);
-				}
-				return (IntPtr)(-(index + 1));
+				SetPendingException(pEnv, new java.lang.OutOfMemoryError("JNI global reference table overflow"));
+				return IntPtr.Zero;
 			}
+			return (IntPtr)(-(index + 1));
 		}
 
 		internal static void DeleteGlobalRef(JNIEnv* pEnv, jobject obj)
@@ -1850,10 +2036,7 @@ namespace IKVM.Runtime
 			int i = obj.ToInt32();
 			if(i < 0)
 			{
-				lock(GlobalRefs.globalRefs)
-				{
-					GlobalRefs.globalRefs[(-i) - 1] = null;
-				}
+				GlobalRefs.globalRefs.Remove((-i) - 1);
 				return;
 			}
 			if(i > 0)
@@ -1935,11 +2118,230 @@ namespace IKVM.Runtime
 			public jobject l;
 		}
 
+		// the signature of the generated stubs that are used to call Java methods from native code,
+		// reference arguments are unwrapped by the caller and passed in refArgs and primitive results
+		// are stored in *result (reference results are returned)
+		private delegate object JniInvoker(object obj, object[] refArgs, IntPtr args, IntPtr result, ikvm.@internal.CallerID callerID);
+
+		private sealed class InvokeStub
+		{
+			internal static readonly InvokeStub None = new InvokeStub(null, null);
+			internal readonly JniInvoker invoker;
+			internal readonly int[] refArgs;		// indexes of the reference arguments in the jvalue array
+
+			internal InvokeStub(JniInvoker invoker, int[] refArgs)
+			{
+				this.invoker = invoker;
+				this.refArgs = refArgs;
+			}
+		}
+
 		private static object InvokeHelper(JNIEnv* pEnv, jobject objHandle, jmethodID methodID, jvalue* pArgs, bool nonVirtual)
 		{
+			jvalue result;
+			return InvokeHelper(pEnv, objHandle, methodID, pArgs, nonVirtual, &result);
+		}
+
+		private static object InvokeHelper(JNIEnv* pEnv, jobject objHandle, jmethodID methodID, jvalue* pArgs, bool nonVirtual, jvalue* pResult)
+		{
+			pResult->j = 0;
 			ManagedJNIEnv env = pEnv->GetManagedJNIEnv();
-			object obj = UnwrapRef(env, objHandle);
 			MethodWrapper mw = MethodWrapper.FromCookie(methodID);
+			try
+			{
+				InvokeStub stub = GetInvokeStub(mw);
+				if (stub.invoker != null && !(nonVirtual && mw.RequiresNonVirtualDispatcher))
+				{
+					object[] refArgs = null;
+					if (stub.refArgs.Length != 0)
+					{
+						refArgs = new object[stub.refArgs.Length];
+						for (int i = 0; i < refArgs.Length; i++)
+						{
+							refArgs[i] = UnwrapRef(env, pArgs[stub.refArgs[i]].l);
+						}
+					}
+					return stub.invoker(UnwrapRef(env, objHandle), refArgs, (IntPtr)pArgs, (IntPtr)pResult, env.callerID);
+				}
+			}
+			catch (Exception x)
+			{
+				SetPendingException(pEnv, ikvm.runtime.Util.mapException(x));
+				return null;
+			}
+			object o = InvokeReflective(env, objHandle, mw, pArgs, nonVirtual);
+			TypeWrapper retType = mw.ReturnType;
+			if (o == null || !retType.IsPrimitive)
+			{
+				return o;
+			}
+			if (retType == PrimitiveTypeWrapper.BOOLEAN)
+				pResult->z = ((bool)o) ? JNI_TRUE : JNI_FALSE;
+			else if (retType == PrimitiveTypeWrapper.BYTE)
+				pResult->b = (jbyte)(byte)o;
+			else if (retType == PrimitiveTypeWrapper.CHAR)
+				pResult->c = (jchar)(char)o;
+			else if (retType == PrimitiveTypeWrapper.SHORT)
+				pResult->s = (jshort)(short)o;
+			else if (retType == PrimitiveTypeWrapper.INT)
+				pResult->i = (jint)(int)o;
+			else if (retType == PrimitiveTypeWrapper.LONG)
+				pResult->j = (jlong)(long)o;
+			else if (retType == PrimitiveTypeWrapper.FLOAT)
+				pResult->f = (jfloat)(float)o;
+			else if (retType == PrimitiveTypeWrapper.DOUBLE)
+				pResult->d = (jdouble)(double)o;
+			return null;
+		}
+
+		private static InvokeStub GetInvokeStub(MethodWrapper mw)
+		{
+			InvokeStub stub = (InvokeStub)mw.JniInvokeStub;
+			if (stub == null)
+			{
+				mw.Link();
+				mw.ResolveMethod();
+				stub = CreateInvokeStub(mw);
+				if ((mw.IsStatic || mw.DeclaringType.IsInterface) && mw.DeclaringType.HasStaticInitializer)
+				{
+					// a DynamicMethod that calls a static method doesn't reliably trigger the cctor,
+					// so we run it before we publish the stub (see FastMethodAccessorImpl)
+					mw.DeclaringType.RunClassInit();
+				}
+				// if another thread created a stub as well, it doesn't matter which one wins
+				mw.JniInvokeStub = stub;
+			}
+			return stub;
+		}
+
+		private static InvokeStub CreateInvokeStub(MethodWrapper mw)
+		{
+			// constructors and dynamic only methods are rare enough to leave them to InvokeReflective
+			if (mw.IsConstructor || mw.IsDynamicOnly || mw.ReturnType.IsUnloadable)
+			{
+				return InvokeStub.None;
+			}
+			TypeWrapper[] argTypes = mw.GetParameters();
+			int refCount = 0;
+			for (int i = 0; i < argTypes.Length; i++)
+			{
+				if (argTypes[i].IsUnloadable)
+				{
+					return InvokeStub.None;
+				}
+				if (!argTypes[i].IsPrimitive)
+				{
+					refCount++;
+				}
+			}
+			int[] refArgs = new int[refCount];
+			DynamicMethod dm = DynamicMethodUtils.Create("__<JniInvoker>", mw.DeclaringType.TypeAsBaseType, true, typeof(object), new Type[] { typeof(object), typeof(object[]), typeof(IntPtr), typeof(IntPtr), typeof(ikvm.@internal.CallerID) });
+			CodeEmitter ilgen = CodeEmitter.Create(dm);
+			CodeEmitterLocal self = null;
+			if (!mw.IsStatic)
+			{
+				self = ilgen.DeclareLocal(mw.DeclaringType.TypeAsSignatureType);
+				ilgen.Emit(OpCodes.Ldarg_0);
+				mw.DeclaringType.EmitCheckcast(ilgen);
+				mw.DeclaringType.EmitConvStackTypeToSignatureType(ilgen, null);
+				ilgen.Emit(OpCodes.Stloc, self);
+				if (mw.DeclaringType.IsNonPrimitiveValueType || mw.DeclaringType.IsGhost)
+				{
+					ilgen.Emit(OpCodes.Ldloca, self);
+				}
+				else
+				{
+					ilgen.Emit(OpCodes.Ldloc, self);
+				}
+			}
+			refCount = 0;
+			for (int i = 0; i < argTypes.Length; i++)
+			{
+				TypeWrapper type = argTypes[i];
+				if (!type.IsPrimitive)
+				{
+					refArgs[refCount] = i;
+					ilgen.Emit(OpCodes.Ldarg_1);
+					ilgen.EmitLdc_I4(refCount++);
+					ilgen.Emit(OpCodes.Ldelem_Ref);
+					type.EmitCheckcast(ilgen);
+					type.EmitConvStackTypeToSignatureType(ilgen, null);
+					continue;
+				}
+				ilgen.Emit(OpCodes.Ldarg_2);
+				if (i != 0)
+				{
+					ilgen.EmitLdc_I4(i * sizeof(jvalue));
+					ilgen.Emit(OpCodes.Add);
+				}
+				if (type == PrimitiveTypeWrapper.BOOLEAN)
+				{
+					// any non-zero jboolean is true
+					ilgen.Emit(OpCodes.Ldind_I1);
+					ilgen.Emit(OpCodes.Ldc_I4_0);
+					ilgen.Emit(OpCodes.Cgt_Un);
+				}
+				else if (type == PrimitiveTypeWrapper.BYTE)
+					ilgen.Emit(OpCodes.Ldind_U1);
+				else if (type == PrimitiveTypeWrapper.CHAR)
+					ilgen.Emit(OpCodes.Ldind_U2);
+				else if (type == PrimitiveTypeWrapper.SHORT)
+					ilgen.Emit(OpCodes.Ldind_I2);
+				else if (type == PrimitiveTypeWrapper.INT)
+					ilgen.Emit(OpCodes.Ldind_I4);
+				else if (type == PrimitiveTypeWrapper.LONG)
+					ilgen.Emit(OpCodes.Ldind_I8);
+				else if (type == PrimitiveTypeWrapper.FLOAT)
+					ilgen.Emit(OpCodes.Ldind_R4);
+				else if (type == PrimitiveTypeWrapper.DOUBLE)
+					ilgen.Emit(OpCodes.Ldind_R8);
+			}
+			if (mw.HasCallerID)
+			{
+				ilgen.EmitLdarg(4);
+			}
+			if (mw.IsStatic)
+			{
+				mw.EmitCall(ilgen);
+			}
+			else
+			{
+				mw.EmitCallvirtReflect(ilgen);
+			}
+			TypeWrapper retType = mw.ReturnType;
+			retType.EmitConvSignatureTypeToStackType(ilgen);
+			if (retType == PrimitiveTypeWrapper.VOID)
+			{
+				ilgen.Emit(OpCodes.Ldnull);
+			}
+			else if (retType.IsPrimitive)
+			{
+				CodeEmitterLocal ret = ilgen.DeclareLocal(retType.TypeAsSignatureType);
+				ilgen.Emit(OpCodes.Stloc, ret);
+				ilgen.Emit(OpCodes.Ldarg_3);
+				ilgen.Emit(OpCodes.Ldloc, ret);
+				if (retType == PrimitiveTypeWrapper.BOOLEAN || retType == PrimitiveTypeWrapper.BYTE)
+					ilgen.Emit(OpCodes.Stind_I1);
+				else if (retType == PrimitiveTypeWrapper.CHAR || retType == PrimitiveTypeWrapper.SHORT)
+					ilgen.Emit(OpCodes.Stind_I2);
+				else if (retType == PrimitiveTypeWrapper.INT)
+					ilgen.Emit(OpCodes.Stind_I4);
+				else if (retType == PrimitiveTypeWrapper.LONG)
+					ilgen.Emit(OpCodes.Stind_I8);
+				else if (retType == PrimitiveTypeWrapper.FLOAT)
+					ilgen.Emit(OpCodes.Stind_R4);
+				else if (retType == PrimitiveTypeWrapper.DOUBLE)
+					ilgen.Emit(OpCodes.Stind_R8);
+				ilgen.Emit(OpCodes.Ldnull);
+			}
+			ilgen.Emit(OpCodes.Ret);
+			ilgen.DoEmit();
+			return new InvokeStub((JniInvoker)dm.CreateDelegate(typeof(JniInvoker)), refArgs);
+		}
+
+		private static object InvokeReflective(ManagedJNIEnv env, jobject objHandle, MethodWrapper mw, jvalue* pArgs, bool nonVirtual)
+		{
+			object obj = UnwrapRef(env, objHandle);
 			mw.Link();
 			mw.ResolveMethod();
 			TypeWrapper[] argTypes = mw.GetParameters();
@@ -2003,7 +2405,7 @@ namespace IKVM.Runtime
 			}
 			catch (Exception x)
 			{
-				SetPendingException(pEnv, ikvm.runtime.Util.mapException(x));
+				SetPendingException(env.pJNIEnv, ikvm.runtime.Util.mapException(x));
 				return null;
 			}
 		}
@@ -2182,82 +2584,58 @@ namespace IKVM.Runtime
 
 		internal static jboolean CallBooleanMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return ((bool)o) ? JNI_TRUE : JNI_FALSE;
-			}
-			return JNI_FALSE;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.z;
 		}
 
 		internal static jbyte CallByteMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return (jbyte)(byte)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.b;
 		}
 
 		internal static jchar CallCharMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return (jchar)(char)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.c;
 		}
 
 		internal static jshort CallShortMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return (jshort)(short)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.s;
 		}
 
 		internal static jint CallIntMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return (jint)(int)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.i;
 		}
 
 		internal static jlong CallLongMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return (jlong)(long)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.j;
 		}
 
 		internal static jfloat CallFloatMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return (jfloat)(float)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.f;
 		}
 
 		internal static jdouble CallDoubleMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, false);
-			if(o != null)
-			{
-				return (jdouble)(double)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, false, &result);
+			return result.d;
 		}
 
 		internal static void CallVoidMethodA(JNIEnv* pEnv, jobject obj, jmethodID methodID, jvalue*  args)
@@ -2272,82 +2650,58 @@ namespace IKVM.Runtime
 
 		internal static jboolean CallNonvirtualBooleanMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue*  args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return ((bool)o) ? JNI_TRUE : JNI_FALSE;
-			}
-			return JNI_FALSE;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.z;
 		}
 
 		internal static jbyte CallNonvirtualByteMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return (jbyte)(byte)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.b;
 		}
 
 		internal static jchar CallNonvirtualCharMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return (jchar)(char)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.c;
 		}
 
 		internal static jshort CallNonvirtualShortMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return (jshort)(short)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.s;
 		}
 
 		internal static jint CallNonvirtualIntMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return (jint)(int)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.i;
 		}
 
 		internal static jlong CallNonvirtualLongMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return (jlong)(long)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.j;
 		}
 
 		internal static jfloat CallNonvirtualFloatMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return (jfloat)(float)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.f;
 		}
 
 		internal static jdouble CallNonvirtualDoubleMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
 		{
-			object o = InvokeHelper(pEnv, obj, methodID, args, true);
-			if(o != null)
-			{
-				return (jdouble)(double)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, obj, methodID, args, true, &result);
+			return result.d;
 		}
 
 		internal static void CallNonvirtualVoidMethodA(JNIEnv* pEnv, jobject obj, jclass clazz, jmethodID methodID, jvalue* args)
@@ -2516,82 +2870,58 @@ namespace IKVM.Runtime
 
 		internal static jboolean CallStaticBooleanMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return ((bool)o) ? JNI_TRUE : JNI_FALSE;
-			}
-			return JNI_FALSE;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.z;
 		}
 
 		internal static jbyte CallStaticByteMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return (jbyte)(byte)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.b;
 		}
 
 		internal static jchar CallStaticCharMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return (jchar)(char)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.c;
 		}
 
 		internal static jshort CallStaticShortMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return (jshort)(short)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.s;
 		}
 
 		internal static jint CallStaticIntMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return (jint)(int)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.i;
 		}
 
 		internal static jlong CallStaticLongMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return (jlong)(long)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.j;
 		}
 
 		internal static jfloat CallStaticFloatMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return (jfloat)(float)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.f;
 		}
 
 		internal static jdouble CallStaticDoubleMethodA(JNIEnv* pEnv, jclass clazz, jmethodID methodID, jvalue *args)
 		{
-			object o = InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false);
-			if(o != null)
-			{
-				return (jdouble)(double)o;
-			}
-			return 0;
+			jvalue result;
+			InvokeHelper(pEnv, IntPtr.Zero, methodID, args, false, &result);
+			return result.d;
 		}
 
 		internal static void CallStaticVoidMethodA(JNIEnv* pEnv, jclass cls, jmethodID methodID, jvalue * args)
@@ -3630,23 +3960,13 @@ namespace IKVM.Runtime
 			{
 				return IntPtr.Zero;
 			}
-			lock(GlobalRefs.weakRefLock)
+			int index = GlobalRefs.weakRefs.Add(new WeakReference(o, true));
+			if(index == -1)
 			{
-				for(int i = 0; i < GlobalRefs.weakRefs.Length; i++)
-				{
-					if(!GlobalRefs.weakRefs[i].IsAllocated)
-					{
-						GlobalRefs.weakRefs[i] = GCHandle.Alloc(o, GCHandleType.WeakTrackResurrection);
-						return (IntPtr)(- (i | (1 << 30)));
-					}
-				}
-				int len = GlobalRefs.weakRefs.Length;
-				GCHandle[] tmp = new GCHandle[len * 2];
-				Array.Copy(GlobalRefs.weakRefs, 0, tmp, 0, len);
-				tmp[len] = GCHandle.Alloc(o, GCHandleType.WeakTrackResurrection);
-				GlobalRefs.weakRefs = tmp;
-				return (IntPtr)(- (len | (1 << 30)));
+				SetPendingException(pEnv, new java.lang.OutOfMemoryError("JNI weak global reference table overflow"));
+				return IntPtr.Zero;
 			}
+			return (IntPtr)(- (index | GlobalRefs.WEAK_BIT));
 		}
 
 		internal static void DeleteWeakGlobalRef(JNIEnv* pEnv, jweak obj)
@@ -3655,11 +3975,8 @@ namespace IKVM.Runtime
 			if(i < 0)
 			{
 				i = -i;
-				i -= (1 << 30);
-				lock(GlobalRefs.weakRefLock)
-				{
-					GlobalRefs.weakRefs[i].Free();
-				}
+				i -= GlobalRefs.WEAK_BIT;
+				GlobalRefs.weakRefs.Remove(i);
 			}
 			if(i > 0)
 			{
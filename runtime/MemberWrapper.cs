@@ -68,6 +68,7 @@ namespace IKVM.Internal
 		private sealed class HandleWrapper
 		{
 			internal readonly IntPtr Value;
+			internal object JniInvokeStub;
 
 			[System.Security.SecurityCritical]
 			internal HandleWrapper(MemberWrapper obj)
@@ -121,6 +122,20 @@ namespace IKVM.Internal
 			}
 		}
 
+		// JNI caches the stub it uses to invoke this method with the handle, since only
+		// methods that have been passed to native code (via Cookie) need one
+		internal object JniInvokeStub
+		{
+			get
+			{
+				return handle.JniInvokeStub;
+			}
+			set
+			{
+				handle.JniInvokeStub = value;
+			}
+		}
+
 		[System.Security.SecurityCritical]
 		internal static MemberWrapper FromCookieImpl(IntPtr cookie)
 		{
@@ -1643,9 +1658,33 @@ namespace IKVM.Internal
 		}
 
 #if EMITTERS
+		// when we're generating code for the current (64-bit) process, 64-bit field accesses are
+		// atomic and we can use a normal volatile access instead of calling the ByteCodeHelper methods
+		private static bool IsAtomic
+		{
+			get
+			{
+#if STATIC_COMPILER
+				return false;
+#else
+				return IntPtr.Size == 8;
+#endif
+			}
+		}
+
 		protected override void EmitGetImpl(CodeEmitter ilgen)
 		{
 			FieldInfo fi = GetField();
+			if(IsAtomic)
+			{
+				if(!fi.IsStatic && DeclaringType.IsNonPrimitiveValueType)
+				{
+					ilgen.Emit(OpCodes.Unbox, DeclaringType.TypeAsTBD);
+				}
+				ilgen.Emit(OpCodes.Volatile);
+				ilgen.Emit(fi.IsStatic ? OpCodes.Ldsfld : OpCodes.Ldfld, fi);
+				return;
+			}
 			if(fi.IsStatic)
 			{
 				ilgen.Emit(OpCodes.Ldsflda, fi);
@@ -1674,6 +1713,18 @@ namespace IKVM.Internal
 			FieldInfo fi = GetField();
 			CodeEmitterLocal temp = ilgen.DeclareLocal(FieldTypeWrapper.TypeAsSignatureType);
 			ilgen.Emit(OpCodes.Stloc, temp);
+			if(IsAtomic)
+			{
+				if(!fi.IsStatic && DeclaringType.IsNonPrimitiveValueType)
+				{
+					ilgen.Emit(OpCodes.Unbox, DeclaringType.TypeAsTBD);
+				}
+				ilgen.Emit(OpCodes.Ldloc, temp);
+				ilgen.Emit(OpCodes.Volatile);
+				ilgen.Emit(fi.IsStatic ? OpCodes.Stsfld : OpCodes.Stfld, fi);
+				ilgen.EmitMemoryBarrier();
+				return;
+			}
 			if(fi.IsStatic)
 			{
 				ilgen.Emit(OpCodes.Ldsflda, fi);
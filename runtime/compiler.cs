@@ -51,6 +51,7 @@ static class ByteCodeHelperMethods
 	internal static readonly MethodInfo f2l;
 	internal static readonly MethodInfo d2l;
 	internal static readonly MethodInfo arraycopy_fast;
+	internal static readonly MethodInfo arraycopy_object;
 	internal static readonly MethodInfo arraycopy_primitive_8;
 	internal static readonly MethodInfo arraycopy_primitive_4;
 	internal static readonly MethodInfo arraycopy_primitive_2;
@@ -100,6 +101,7 @@ static class ByteCodeHelperMethods
 		f2l = GetHelper(typeofByteCodeHelper, "f2l");
 		d2l = GetHelper(typeofByteCodeHelper, "d2l");
 		arraycopy_fast = GetHelper(typeofByteCodeHelper, "arraycopy_fast");
+		arraycopy_object = GetHelper(typeofByteCodeHelper, "arraycopy_object");
 		arraycopy_primitive_8 = GetHelper(typeofByteCodeHelper, "arraycopy_primitive_8");
 		arraycopy_primitive_4 = GetHelper(typeofByteCodeHelper, "arraycopy_primitive_4");
 		arraycopy_primitive_2 = GetHelper(typeofByteCodeHelper, "arraycopy_primitive_2");
@@ -265,6 +267,54 @@ static partial class MethodHandleUtil
 	}
 }
 
+// the result of running the verifier over a method, this is split out of the Compiler constructor
+// so that DynamicTypeWrapper.FinishContext can analyze the methods of a class ahead of time
+sealed class MethodAnalysis
+{
+	internal readonly UntangledExceptionTable exceptions;
+	internal readonly CodeInfo ma;
+	internal readonly List<string> harderrors;
+	internal readonly LocalVarInfo localVars;
+	private readonly Exception error;
+
+	private MethodAnalysis(UntangledExceptionTable exceptions, CodeInfo ma, List<string> harderrors, LocalVarInfo localVars)
+	{
+		this.exceptions = exceptions;
+		this.ma = ma;
+		this.harderrors = harderrors;
+		this.localVars = localVars;
+	}
+
+	internal MethodAnalysis(Exception error)
+	{
+		this.error = error;
+	}
+
+	internal static MethodAnalysis Analyze(TypeWrapper host, DynamicTypeWrapper clazz, MethodWrapper mw, ClassFile classFile, ClassFile.Method m, ClassLoaderWrapper classLoader)
+	{
+		if(classFile.MajorVersion < 51 && m.HasJsr)
+		{
+			JsrInliner.InlineJsrs(classLoader, mw, classFile, m);
+		}
+		MethodAnalyzer verifier = new MethodAnalyzer(host, clazz, mw, classFile, m, classLoader);
+		UntangledExceptionTable exceptions = MethodAnalyzer.UntangleExceptionBlocks(classFile, m);
+		List<string> harderrors;
+		CodeInfo ma = verifier.GetCodeInfoAndErrors(exceptions, out harderrors);
+		LocalVarInfo localVars = new LocalVarInfo(ma, classFile, m, exceptions, mw, classLoader);
+		return new MethodAnalysis(exceptions, ma, harderrors, localVars);
+	}
+
+	// an analysis that ran on another thread may have failed with a VerifyError or ClassFormatError,
+	// that has to surface in Compiler.Compile on the finishing thread
+	internal void ThrowIfFailed()
+	{
+		if(error != null)
+		{
+			throw error;
+		}
+	}
+}
+
 sealed class Compiler
 {
 	internal static readonly MethodInfo unmapExceptionMethod;
@@ -357,22 +407,27 @@ sealed class Compiler
 			}
 		}
 
-		Profiler.Enter("MethodAnalyzer");
-		try
+		MethodAnalysis analysis = null;
+#if !STATIC_COMPILER
+		analysis = context.GetMethodAnalysis(m);
+#endif
+		if(analysis == null)
 		{
-			if(classFile.MajorVersion < 51 && m.HasJsr)
+			Profiler.Enter("MethodAnalyzer");
+			try
 			{
-				JsrInliner.InlineJsrs(classLoader, mw, classFile, m);
+				analysis = MethodAnalysis.Analyze(host, clazz, mw, classFile, m, classLoader);
+			}
+			finally
+			{
+				Profiler.Leave("MethodAnalyzer");
 			}
-			MethodAnalyzer verifier = new MethodAnalyzer(host, clazz, mw, classFile, m, classLoader);
-			exceptions = MethodAnalyzer.UntangleExceptionBlocks(classFile, m);
-			ma = verifier.GetCodeInfoAndErrors(exceptions, out harderrors);
-			localVars = new LocalVarInfo(ma, classFile, m, exceptions, mw, classLoader);
-		}
-		finally
-		{
-			Profiler.Leave("MethodAnalyzer");
 		}
+		analysis.ThrowIfFailed();
+		exceptions = analysis.exceptions;
+		ma = analysis.ma;
+		harderrors = analysis.harderrors;
+		localVars = analysis.localVars;
 
 		if (m.LineNumberTableAttribute != null)
 		{
@@ -433,6 +433,11 @@ namespace IKVM.Internal
 						{
 							eic.Emitter.Emit(OpCodes.Call, ByteCodeHelperMethods.arraycopy_fast);
 						}
+						else if (!elemtw.IsNonPrimitiveValueType && !elemtw.IsUnloadable)
+						{
+							// the runtime types may still differ, but we know that they're both object[]
+							eic.Emitter.Emit(OpCodes.Call, ByteCodeHelperMethods.arraycopy_object);
+						}
 						else
 						{
 							eic.Emitter.Emit(OpCodes.Call, ByteCodeHelperMethods.arraycopy);
@@ -142,7 +142,22 @@ static class Java_java_security_AccessController
 		List<java.security.ProtectionDomain> list = new List<java.security.ProtectionDomain>();
 		while (lc != null)
 		{
-			if (GetProtectionDomains(list, lc.callerID, lc.stackTrace))
+			if (lc.stackTrace == null)
+			{
+				// the stack wasn't captured (because there was no SecurityManager), but if the thread
+				// was created inside doPrivileged, the walk would have stopped at the privileged caller
+				if (lc.callerID != null)
+				{
+					java.lang.Class caller = lc.callerID.getCallerClass();
+					java.security.ProtectionDomain protection_domain = caller == null ? null : Java_java_lang_Class.getProtectionDomain0(caller);
+					if (protection_domain != null && !list.Contains(protection_domain))
+					{
+						list.Add(protection_domain);
+					}
+					return CreateAccessControlContext(list, true, lc.context);
+				}
+			}
+			else if (GetProtectionDomains(list, lc.callerID, lc.stackTrace))
 			{
 				return CreateAccessControlContext(list, true, lc.context);
 			}
@@ -26,6 +26,8 @@ using System;
 using System.Collections.Generic;
 using System.IO;
 using System.Reflection;
+using System.Runtime.CompilerServices;
+using System.Runtime.InteropServices;
 using System.Security;
 using System.Security.Cryptography;
 using System.Security.Principal;
@@ -57,6 +59,195 @@ static class Java_java_lang_ref_Reference
 		return true;
 #endif
 	}
+
+#if !FIRST_PASS && NET_4_0
+	// the referents of references that have a queue, each with an object that is finalized when the referent is collected,
+	// the tables are striped by identity hash code, because ConditionalWeakTable takes a lock for every update
+	private static readonly ReferentTable[] referentTables = CreateReferentTables();
+
+	private static ReferentTable[] CreateReferentTables()
+	{
+		ReferentTable[] tables = new ReferentTable[16];
+		for (int i = 0; i < tables.Length; i++)
+		{
+			tables[i] = new ReferentTable();
+		}
+		return tables;
+	}
+
+	sealed class ReferentTable
+	{
+		// the number of finalized ReferentCollected objects we keep around for reuse
+		private const int MaxPooled = 256;
+		private readonly ConditionalWeakTable<object, ReferentCollected> table = new ConditionalWeakTable<object, ReferentCollected>();
+		private ReferentCollected pool;
+		private int pooled;
+
+		internal void Register(object referent, java.lang.@ref.Reference reference)
+		{
+			lock (this)
+			{
+				ReferentCollected rc;
+				if (!table.TryGetValue(referent, out rc))
+				{
+					rc = pool;
+					if (rc != null)
+					{
+						pool = rc.nextPooled;
+						rc.nextPooled = null;
+						pooled--;
+						GC.ReRegisterForFinalize(rc);
+					}
+					else
+					{
+						rc = new ReferentCollected(this);
+					}
+					table.Add(referent, rc);
+				}
+				rc.Add(reference);
+			}
+		}
+
+		// called (with the lock held) by the finalizer of a ReferentCollected that has no more references to notify,
+		// returns false if the pool is full
+		internal bool Release(ReferentCollected rc)
+		{
+			if (pooled < MaxPooled)
+			{
+				rc.nextPooled = pool;
+				pool = rc;
+				pooled++;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	sealed class ReferentCollected
+	{
+		private readonly ReferentTable owner;
+		// the references are tracked by weak GCHandles, because a Reference that is no longer reachable doesn't have to be enqueued
+		// (we can't use WeakReference objects, because they may already have been finalized when our finalizer runs),
+		// almost all referents have a single reference, so the first handle doesn't need a list (and it is kept when we're pooled)
+		private GCHandle first;
+		private List<GCHandle> more;
+		internal ReferentCollected nextPooled;
+
+		internal ReferentCollected(ReferentTable owner)
+		{
+			this.owner = owner;
+		}
+
+		// must be called with the owner's lock held
+		[SecuritySafeCritical]
+		internal void Add(java.lang.@ref.Reference reference)
+		{
+			if (!first.IsAllocated)
+			{
+				first = GCHandle.Alloc(reference, GCHandleType.Weak);
+			}
+			else if (first.Target == null)
+			{
+				first.Target = reference;
+			}
+			else
+			{
+				if (more == null)
+				{
+					more = new List<GCHandle>();
+				}
+				more.Add(GCHandle.Alloc(reference, GCHandleType.Weak));
+			}
+		}
+
+		[SecuritySafeCritical]
+		~ReferentCollected()
+		{
+			if (Environment.HasShutdownStarted)
+			{
+				return;
+			}
+			java.lang.@ref.Reference reference = null;
+			List<java.lang.@ref.Reference> others = null;
+			lock (owner)
+			{
+				if (first.IsAllocated)
+				{
+					reference = (java.lang.@ref.Reference)first.Target;
+					first.Target = null;
+				}
+				if (more != null)
+				{
+					others = new List<java.lang.@ref.Reference>(more.Count);
+					foreach (GCHandle handle in more)
+					{
+						java.lang.@ref.Reference r = (java.lang.@ref.Reference)handle.Target;
+						if (r != null)
+						{
+							others.Add(r);
+						}
+						handle.Free();
+					}
+					more = null;
+				}
+			}
+			// the references are notified without holding the lock, because that takes the queue's lock
+			List<java.lang.@ref.Reference> pending = null;
+			if (reference != null && !reference.referentCollected())
+			{
+				pending = new List<java.lang.@ref.Reference>();
+				pending.Add(reference);
+			}
+			if (others != null)
+			{
+				foreach (java.lang.@ref.Reference r in others)
+				{
+					if (!r.referentCollected())
+					{
+						if (pending == null)
+						{
+							pending = new List<java.lang.@ref.Reference>();
+						}
+						pending.Add(r);
+					}
+				}
+			}
+			lock (owner)
+			{
+				if (pending != null)
+				{
+					// the referent was resurrected (by its finalizer), so we try again later
+					foreach (java.lang.@ref.Reference r in pending)
+					{
+						Add(r);
+					}
+					GC.ReRegisterForFinalize(this);
+				}
+				else if (more != null || first.Target != null)
+				{
+					GC.ReRegisterForFinalize(this);
+				}
+				else if (!owner.Release(this))
+				{
+					first.Free();
+				}
+			}
+		}
+	}
+#endif
+
+	// called for every reference that has a queue, to have it enqueued when the referent is collected,
+	// returns false if the referent can't be tracked (ConditionalWeakTable requires .NET 4), in which case
+	// the reference queue keeps the reference on its active list
+	public static bool registerReferent(object referent, java.lang.@ref.Reference reference)
+	{
+#if FIRST_PASS || !NET_4_0
+		return false;
+#else
+		referentTables[RuntimeHelpers.GetHashCode(referent) & (referentTables.Length - 1)].Register(referent, reference);
+		return true;
+#endif
+	}
 }
 
 static class Java_java_util_logging_FileHandler
@@ -75,22 +266,7 @@ static class Java_java_util_jar_JarFile
 #if FIRST_PASS
 		return null;
 #else
-		java.util.zip.ZipFile zf = (java.util.zip.ZipFile)thisJarFile;
-		java.util.Enumeration entries = zf.entries();
-		List<string> list = null;
-		while (entries.hasMoreElements())
-		{
-			java.util.zip.ZipEntry entry = (java.util.zip.ZipEntry)entries.nextElement();
-			if (entry.getName().StartsWith("META-INF/", StringComparison.OrdinalIgnoreCase))
-			{
-				if (list == null)
-				{
-					list = new List<string>();
-				}
-				list.Add(entry.getName());
-			}
-		}
-		return list == null ? null : list.ToArray();
+		return ((java.util.zip.ZipFile)thisJarFile).getMetaInfEntryNames();
 #endif
 	}
 }
@@ -106,12 +282,12 @@ static class Java_java_util_zip_ClassStubZipEntry
 		try
 		{
 			string path = zipFile.getName();
-			java.util.zip.ZipEntry entry = (java.util.zip.ZipEntry)entries.get(JVM.JarClassList);
+			java.util.zip.ZipEntry entry = zipFile.getEntry(JVM.JarClassList);
 			if (entry != null && VirtualFileSystem.IsVirtualFS(path))
 			{
 				using (VirtualFileSystem.ZipEntryStream stream = new VirtualFileSystem.ZipEntryStream(zipFile, entry))
 				{
-					entries.remove(entry.name);
+					zipFile.hideEntry(entry.name);
 					BinaryReader br = new BinaryReader(stream);
 					int count = br.ReadInt32();
 					for (int i = 0; i < count; i++)
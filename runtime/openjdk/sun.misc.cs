@@ -317,7 +317,7 @@ static class Java_sun_misc_Unsafe
 #endif
 	}
 
-	private static void CheckArrayBounds(object obj, long offset, int accessLength)
+	private static void CheckArrayBounds(object obj, long offset, long accessLength)
 	{
 		// NOTE we rely on the fact that Buffer.ByteLength() requires a primitive array
 		int arrayLength = Buffer.ByteLength((Array)obj);
@@ -390,6 +390,274 @@ static class Java_sun_misc_Unsafe
 		handle.Free();
 	}
 
+	// unaligned or mistyped array accesses can't be done atomically, so they are serialized
+	// on a lock that is selected by array identity (not by offset, because such accesses
+	// may overlap other elements)
+	private static readonly object[] arrayLocks = CreateArrayLocks();
+
+	private static object[] CreateArrayLocks()
+	{
+		object[] locks = new object[64];
+		for (int i = 0; i < locks.Length; i++)
+		{
+			locks[i] = new object();
+		}
+		return locks;
+	}
+
+	private static object GetArrayLock(object obj)
+	{
+		return arrayLocks[System.Runtime.CompilerServices.RuntimeHelpers.GetHashCode(obj) & (arrayLocks.Length - 1)];
+	}
+
+	public static int ReadInt32Volatile(object obj, long offset)
+	{
+		int[] array = obj as int[];
+		if (array != null && (offset & 3) == 0)
+		{
+			Stats.Log("ReadInt32Volatile.array");
+			return Thread.VolatileRead(ref array[offset / 4]);
+		}
+		Stats.Log("ReadInt32Volatile.unaligned");
+		lock (GetArrayLock(obj))
+		{
+			return ReadInt32(obj, offset);
+		}
+	}
+
+	public static void WriteInt32Volatile(object obj, long offset, int value)
+	{
+		int[] array = obj as int[];
+		if (array != null && (offset & 3) == 0)
+		{
+			Stats.Log("WriteInt32Volatile.array");
+			Interlocked.Exchange(ref array[offset / 4], value);
+			return;
+		}
+		Stats.Log("WriteInt32Volatile.unaligned");
+		lock (GetArrayLock(obj))
+		{
+			WriteInt32(obj, offset, value);
+		}
+	}
+
+	public static long ReadInt64Volatile(object obj, long offset)
+	{
+		long[] array = obj as long[];
+		if (array != null && (offset & 7) == 0)
+		{
+			Stats.Log("ReadInt64Volatile.array");
+			// a 64 bit read is only atomic on a 64 bit runtime
+			return IntPtr.Size == 8
+				? Thread.VolatileRead(ref array[offset / 8])
+				: Interlocked.Read(ref array[offset / 8]);
+		}
+		Stats.Log("ReadInt64Volatile.unaligned");
+		lock (GetArrayLock(obj))
+		{
+			return ReadInt64(obj, offset);
+		}
+	}
+
+	public static void WriteInt64Volatile(object obj, long offset, long value)
+	{
+		long[] array = obj as long[];
+		if (array != null && (offset & 7) == 0)
+		{
+			Stats.Log("WriteInt64Volatile.array");
+			Interlocked.Exchange(ref array[offset / 8], value);
+			return;
+		}
+		Stats.Log("WriteInt64Volatile.unaligned");
+		lock (GetArrayLock(obj))
+		{
+			WriteInt64(obj, offset, value);
+		}
+	}
+
+	// copies and fills of raw memory are staged through a managed buffer in chunks of this size,
+	// which is well below java.nio.Bits.UNSAFE_COPY_THRESHOLD
+	private const int StagingChunkSize = 64 * 1024;
+	// below this size it is cheaper to move the bytes 8 at a time than to stage them
+	private const int SmallCopySize = 64;
+	[ThreadStatic]
+	private static byte[] stagingBuffer;
+
+	// the buffer is allocated once per thread and reused for every staged copy or fill,
+	// operations larger than StagingChunkSize go through it in chunks
+	private static byte[] GetStagingBuffer()
+	{
+		return stagingBuffer ?? (stagingBuffer = new byte[StagingChunkSize]);
+	}
+
+	[SecurityCritical]
+	public static void CopyMemory(long srcAddress, long destAddress, long bytes)
+	{
+		Stats.Log("CopyMemory");
+		CopyRaw(srcAddress, destAddress, bytes);
+	}
+
+	// copies between arrays (which may be null to indicate a raw address), arrays are pinned,
+	// so that every combination ends up as a bulk copy between raw addresses
+	[SecurityCritical]
+	public static void CopyMemoryPinned(object srcBase, long srcOffset, object destBase, long destOffset, long bytes)
+	{
+		Stats.Log("CopyMemoryPinned");
+		if (srcBase != null)
+		{
+			CheckArrayBounds(srcBase, srcOffset, bytes);
+		}
+		if (destBase != null)
+		{
+			CheckArrayBounds(destBase, destOffset, bytes);
+		}
+		GCHandle srcHandle = new GCHandle();
+		GCHandle destHandle = new GCHandle();
+		try
+		{
+			if (srcBase != null)
+			{
+				srcHandle = GCHandle.Alloc(srcBase, GCHandleType.Pinned);
+				srcOffset += srcHandle.AddrOfPinnedObject().ToInt64();
+			}
+			if (destBase != null)
+			{
+				destHandle = GCHandle.Alloc(destBase, GCHandleType.Pinned);
+				destOffset += destHandle.AddrOfPinnedObject().ToInt64();
+			}
+			CopyRaw(srcOffset, destOffset, bytes);
+		}
+		finally
+		{
+			if (srcHandle.IsAllocated)
+			{
+				srcHandle.Free();
+			}
+			if (destHandle.IsAllocated)
+			{
+				destHandle.Free();
+			}
+		}
+	}
+
+	[SecurityCritical]
+	private static void CopyRaw(long src, long dest, long bytes)
+	{
+		if (bytes <= 0 || src == dest)
+		{
+			return;
+		}
+		// memmove semantics, if the destination overlaps the end of the source we copy backwards
+		bool backward = dest > src && dest - src < bytes;
+		if (bytes <= SmallCopySize)
+		{
+			if (backward)
+			{
+				for (; bytes >= 8; bytes -= 8)
+				{
+					Marshal.WriteInt64((IntPtr)(dest + bytes - 8), Marshal.ReadInt64((IntPtr)(src + bytes - 8)));
+				}
+				while (bytes-- > 0)
+				{
+					Marshal.WriteByte((IntPtr)(dest + bytes), Marshal.ReadByte((IntPtr)(src + bytes)));
+				}
+			}
+			else
+			{
+				long pos = 0;
+				for (; bytes - pos >= 8; pos += 8)
+				{
+					Marshal.WriteInt64((IntPtr)(dest + pos), Marshal.ReadInt64((IntPtr)(src + pos)));
+				}
+				for (; pos < bytes; pos++)
+				{
+					Marshal.WriteByte((IntPtr)(dest + pos), Marshal.ReadByte((IntPtr)(src + pos)));
+				}
+			}
+			return;
+		}
+		byte[] buf = GetStagingBuffer();
+		if (backward)
+		{
+			while (bytes > 0)
+			{
+				int chunk = (int)Math.Min(bytes, buf.Length);
+				bytes -= chunk;
+				Marshal.Copy((IntPtr)(src + bytes), buf, 0, chunk);
+				Marshal.Copy(buf, 0, (IntPtr)(dest + bytes), chunk);
+			}
+		}
+		else
+		{
+			for (long pos = 0; pos < bytes; )
+			{
+				int chunk = (int)Math.Min(bytes - pos, buf.Length);
+				Marshal.Copy((IntPtr)(src + pos), buf, 0, chunk);
+				Marshal.Copy(buf, 0, (IntPtr)(dest + pos), chunk);
+				pos += chunk;
+			}
+		}
+	}
+
+	// fills an array or (if obj is null) raw memory
+	[SecurityCritical]
+	public static void SetMemory(object obj, long offset, long bytes, byte value)
+	{
+		Stats.Log("SetMemory");
+		if (bytes <= 0)
+		{
+			return;
+		}
+		GCHandle handle = new GCHandle();
+		try
+		{
+			if (obj != null)
+			{
+				CheckArrayBounds(obj, offset, bytes);
+				handle = GCHandle.Alloc(obj, GCHandleType.Pinned);
+				offset += handle.AddrOfPinnedObject().ToInt64();
+			}
+			if (bytes <= SmallCopySize)
+			{
+				long pattern = value & 0xFFL;
+				pattern |= pattern << 8;
+				pattern |= pattern << 16;
+				pattern |= pattern << 32;
+				long pos = 0;
+				for (; bytes - pos >= 8; pos += 8)
+				{
+					Marshal.WriteInt64((IntPtr)(offset + pos), pattern);
+				}
+				for (; pos < bytes; pos++)
+				{
+					Marshal.WriteByte((IntPtr)(offset + pos), value);
+				}
+			}
+			else
+			{
+				byte[] buf = GetStagingBuffer();
+				int fill = (int)Math.Min(bytes, buf.Length);
+				for (int i = 0; i < fill; i++)
+				{
+					buf[i] = value;
+				}
+				for (long pos = 0; pos < bytes; )
+				{
+					int chunk = (int)Math.Min(bytes - pos, fill);
+					Marshal.Copy(buf, 0, (IntPtr)(offset + pos), chunk);
+					pos += chunk;
+				}
+			}
+		}
+		finally
+		{
+			if (handle.IsAllocated)
+			{
+				handle.Free();
+			}
+		}
+	}
+
 	public static void throwException(object thisUnsafe, Exception x)
 	{
 		throw x;
@@ -485,7 +753,7 @@ static class Java_sun_misc_Unsafe
 		{
 			Stats.Log("compareAndSwapInt.unaligned");
 			// unaligned or not the right array type, so we can't be atomic
-			lock (thisUnsafe)
+			lock (GetArrayLock(obj))
 			{
 				if (ReadInt32(obj, offset) == expect)
 				{
@@ -523,7 +791,7 @@ static class Java_sun_misc_Unsafe
 		{
 			Stats.Log("compareAndSwapLong.unaligned");
 			// unaligned or not the right array type, so we can't be atomic
-			lock (thisUnsafe)
+			lock (GetArrayLock(obj))
 			{
 				if (ReadInt64(obj, offset) == expect)
 				{
@@ -648,6 +916,227 @@ static class Java_sun_misc_Unsafe
 #endif
 	}
 
+	private delegate int GetInt32(object obj);
+	private delegate long GetInt64(object obj);
+	private delegate object GetObject(object obj);
+	private delegate void PutInt32(object obj, int value);
+	private delegate void PutInt64(object obj, long value);
+	private delegate void PutObject(object obj, object value);
+	private static GetInt32[] cacheGetInt32 = new GetInt32[0];
+	private static GetInt64[] cacheGetInt64 = new GetInt64[0];
+	private static GetObject[] cacheGetObject = new GetObject[0];
+	private static PutInt32[] cachePutInt32 = new PutInt32[0];
+	private static PutInt64[] cachePutInt64 = new PutInt64[0];
+	private static PutObject[] cachePutObject = new PutObject[0];
+
+	// the field accessors have volatile semantics, they are also used for the non-volatile Unsafe methods
+	public static int GetFieldInt32(object obj, long offset)
+	{
+#if FIRST_PASS
+		return 0;
+#else
+		if (offset >= cacheGetInt32.Length || cacheGetInt32[offset] == null)
+		{
+			InterlockedResize(ref cacheGetInt32, (int)offset + 1);
+			cacheGetInt32[offset] = (GetInt32)CreateFieldAccessor(offset, typeof(int), false);
+		}
+		Stats.Log("GetFieldInt32.", offset);
+		return cacheGetInt32[offset](obj);
+#endif
+	}
+
+	public static long GetFieldInt64(object obj, long offset)
+	{
+#if FIRST_PASS
+		return 0;
+#else
+		if (offset >= cacheGetInt64.Length || cacheGetInt64[offset] == null)
+		{
+			InterlockedResize(ref cacheGetInt64, (int)offset + 1);
+			cacheGetInt64[offset] = (GetInt64)CreateFieldAccessor(offset, typeof(long), false);
+		}
+		Stats.Log("GetFieldInt64.", offset);
+		return cacheGetInt64[offset](obj);
+#endif
+	}
+
+	public static object GetFieldObject(object obj, long offset)
+	{
+#if FIRST_PASS
+		return null;
+#else
+		if (offset >= cacheGetObject.Length || cacheGetObject[offset] == null)
+		{
+			InterlockedResize(ref cacheGetObject, (int)offset + 1);
+			cacheGetObject[offset] = (GetObject)CreateFieldAccessor(offset, typeof(object), false);
+		}
+		Stats.Log("GetFieldObject.", offset);
+		return cacheGetObject[offset](obj);
+#endif
+	}
+
+	public static void PutFieldInt32(object obj, long offset, int value)
+	{
+#if !FIRST_PASS
+		if (offset >= cachePutInt32.Length || cachePutInt32[offset] == null)
+		{
+			InterlockedResize(ref cachePutInt32, (int)offset + 1);
+			cachePutInt32[offset] = (PutInt32)CreateFieldAccessor(offset, typeof(int), true);
+		}
+		Stats.Log("PutFieldInt32.", offset);
+		cachePutInt32[offset](obj, value);
+#endif
+	}
+
+	public static void PutFieldInt64(object obj, long offset, long value)
+	{
+#if !FIRST_PASS
+		if (offset >= cachePutInt64.Length || cachePutInt64[offset] == null)
+		{
+			InterlockedResize(ref cachePutInt64, (int)offset + 1);
+			cachePutInt64[offset] = (PutInt64)CreateFieldAccessor(offset, typeof(long), true);
+		}
+		Stats.Log("PutFieldInt64.", offset);
+		cachePutInt64[offset](obj, value);
+#endif
+	}
+
+	public static void PutFieldObject(object obj, long offset, object value)
+	{
+#if !FIRST_PASS
+		if (offset >= cachePutObject.Length || cachePutObject[offset] == null)
+		{
+			InterlockedResize(ref cachePutObject, (int)offset + 1);
+			cachePutObject[offset] = (PutObject)CreateFieldAccessor(offset, typeof(object), true);
+		}
+		Stats.Log("PutFieldObject.", offset);
+		cachePutObject[offset](obj, value);
+#endif
+	}
+
+#if !FIRST_PASS
+	private static Delegate CreateFieldAccessor(long fieldOffset, Type signatureType, bool put)
+	{
+		FieldInfo field = GetFieldInfo(fieldOffset);
+		bool primitive = signatureType != typeof(object);
+		if (field == null || field.IsLiteral || (primitive ? field.FieldType != signatureType : field.FieldType.IsValueType))
+		{
+			// the field isn't backed by a (non-constant) .NET field (e.g. it is a property or a literal),
+			// or the Unsafe method doesn't match the field type (or the field is a ghost),
+			// let reflection sort it out (and throw the appropriate exception)
+			ReflectionFieldAccessor accessor = new ReflectionFieldAccessor(sun.misc.Unsafe.getField(fieldOffset));
+			if (signatureType == typeof(int))
+			{
+				return put ? (Delegate)new PutInt32(accessor.PutInt32) : new GetInt32(accessor.GetInt32);
+			}
+			else if (signatureType == typeof(long))
+			{
+				return put ? (Delegate)new PutInt64(accessor.PutInt64) : new GetInt64(accessor.GetInt64);
+			}
+			else
+			{
+				return put ? (Delegate)new PutObject(accessor.PutObject) : new GetObject(accessor.GetObject);
+			}
+		}
+		Type delegateType;
+		DynamicMethod dm;
+		if (put)
+		{
+			delegateType = signatureType == typeof(int) ? typeof(PutInt32) : signatureType == typeof(long) ? typeof(PutInt64) : typeof(PutObject);
+			dm = new DynamicMethod("PutField", null, new Type[] { typeof(object), signatureType }, field.DeclaringType);
+		}
+		else
+		{
+			delegateType = signatureType == typeof(int) ? typeof(GetInt32) : signatureType == typeof(long) ? typeof(GetInt64) : typeof(GetObject);
+			dm = new DynamicMethod("GetField", signatureType, new Type[] { typeof(object) }, field.DeclaringType);
+		}
+		ILGenerator ilgen = dm.GetILGenerator();
+		// a 64 bit load or store is only atomic on a 64 bit runtime, otherwise we use Interlocked
+		bool interlocked = signatureType == typeof(long) && IntPtr.Size != 8;
+		if (!field.IsStatic)
+		{
+			ilgen.Emit(OpCodes.Ldarg_0);
+			ilgen.Emit(OpCodes.Castclass, field.DeclaringType);
+		}
+		if (put)
+		{
+			if (interlocked)
+			{
+				ilgen.Emit(field.IsStatic ? OpCodes.Ldsflda : OpCodes.Ldflda, field);
+				ilgen.Emit(OpCodes.Ldarg_1);
+				ilgen.Emit(OpCodes.Call, typeof(Interlocked).GetMethod("Exchange", new Type[] { typeof(long).MakeByRefType(), typeof(long) }));
+				ilgen.Emit(OpCodes.Pop);
+			}
+			else
+			{
+				ilgen.Emit(OpCodes.Ldarg_1);
+				if (!primitive)
+				{
+					ilgen.Emit(OpCodes.Castclass, field.FieldType);
+				}
+				ilgen.Emit(OpCodes.Volatile);
+				ilgen.Emit(field.IsStatic ? OpCodes.Stsfld : OpCodes.Stfld, field);
+				ilgen.Emit(OpCodes.Call, typeof(Thread).GetMethod("MemoryBarrier", Type.EmptyTypes));
+			}
+		}
+		else
+		{
+			if (interlocked)
+			{
+				ilgen.Emit(field.IsStatic ? OpCodes.Ldsflda : OpCodes.Ldflda, field);
+				ilgen.Emit(OpCodes.Call, typeof(Interlocked).GetMethod("Read", new Type[] { typeof(long).MakeByRefType() }));
+			}
+			else
+			{
+				ilgen.Emit(OpCodes.Volatile);
+				ilgen.Emit(field.IsStatic ? OpCodes.Ldsfld : OpCodes.Ldfld, field);
+			}
+		}
+		ilgen.Emit(OpCodes.Ret);
+		return dm.CreateDelegate(delegateType);
+	}
+
+	sealed class ReflectionFieldAccessor
+	{
+		private readonly java.lang.reflect.Field field;
+
+		internal ReflectionFieldAccessor(java.lang.reflect.Field field)
+		{
+			this.field = field;
+		}
+
+		internal int GetInt32(object obj)
+		{
+			return field.getInt(obj);
+		}
+
+		internal long GetInt64(object obj)
+		{
+			return field.getLong(obj);
+		}
+
+		internal object GetObject(object obj)
+		{
+			return field.get(obj);
+		}
+
+		internal void PutInt32(object obj, int value)
+		{
+			field.setInt(obj, value);
+		}
+
+		internal void PutInt64(object obj, long value)
+		{
+			field.setLong(obj, value);
+		}
+
+		internal void PutObject(object obj, object value)
+		{
+			field.set(obj, value);
+		}
+	}
+#endif
+
 	abstract class Atomic
 	{
 		// NOTE we don't care that we keep the Type alive, because Unsafe should only be used inside the core class libraries
@@ -493,56 +493,41 @@ namespace IKVM.Internal
 				}
 				if (populate)
 				{
-					Dictionary<string, string> names = new Dictionary<string, string>();
 					AssemblyClassLoader acl = AssemblyClassLoader.FromAssembly(this.asm);
-					foreach (Assembly asm in acl.GetAllAvailableAssemblies())
+					Assembly[] assemblies = acl.GetAllAvailableAssemblies().ToArray();
+					string cacheKey = VfsCache.GetListingKey(assemblies);
+					ICollection<string> names = VfsCache.ReadListing(cacheKey);
+					if (names == null)
 					{
-						Type[] types;
-						try
-						{
-							types = asm.GetTypes();
-						}
-						catch (ReflectionTypeLoadException x)
+						// the assemblies are scanned in parallel, but the results are merged in order
+						List<string>[] perAssembly = new List<string>[assemblies.Length];
+#if NET_4_0
+						System.Threading.Tasks.Parallel.For(0, assemblies.Length, delegate(int i)
 						{
-							types = x.Types;
-						}
-						catch
+							perAssembly[i] = GetClassNames(acl, assemblies[i]);
+						});
+#else
+						for (int i = 0; i < assemblies.Length; i++)
 						{
-							types = Type.EmptyTypes;
+							perAssembly[i] = GetClassNames(acl, assemblies[i]);
 						}
-						foreach (Type type in types)
+#endif
+						Dictionary<string, string> dict = new Dictionary<string, string>();
+						foreach (List<string> list in perAssembly)
 						{
-							if (type != null)
+							foreach (string name in list)
 							{
-								string name = null;
-								try
-								{
-									bool isJavaType;
-									name = acl.GetTypeNameAndType(type, out isJavaType);
-#if !FIRST_PASS
-									// annotation custom attributes are pseudo proxies and are not loadable by name (and should not exist in the file systems,
-									// because proxies are, ostensibly, created on the fly)
-									if (isJavaType && type.BaseType == typeof(global::ikvm.@internal.AnnotationAttributeBase) && name.Contains(".$Proxy"))
-									{
-										name = null;
-									}
-#endif
-								}
-								catch
-								{
-								}
-								if (name != null)
-								{
-									names[name] = name;
-								}
+								dict[name] = name;
 							}
 						}
+						names = dict.Keys;
+						VfsCache.WriteListing(cacheKey, names);
 					}
 					lock (entries)
 					{
 						if (entries.Count == 0)
 						{
-							foreach (string name in names.Keys)
+							foreach (string name in names)
 							{
 								string[] parts = name.Split('.');
 								VfsDirectory dir = this;
@@ -560,6 +545,232 @@ namespace IKVM.Internal
 			}
 		}
 
+		private static List<string> GetClassNames(AssemblyClassLoader acl, Assembly asm)
+		{
+			List<string> names = new List<string>();
+			Type[] types;
+			try
+			{
+				types = asm.GetTypes();
+			}
+			catch (ReflectionTypeLoadException x)
+			{
+				types = x.Types;
+			}
+			catch
+			{
+				types = Type.EmptyTypes;
+			}
+			foreach (Type type in types)
+			{
+				if (type != null)
+				{
+					string name = null;
+					try
+					{
+						bool isJavaType;
+						name = acl.GetTypeNameAndType(type, out isJavaType);
+						// annotation custom attributes are pseudo proxies and are not loadable by name (and should not exist in the file systems,
+						// because proxies are, ostensibly, created on the fly)
+						if (isJavaType && type.BaseType == typeof(global::ikvm.@internal.AnnotationAttributeBase) && name.Contains(".$Proxy"))
+						{
+							name = null;
+						}
+					}
+					catch
+					{
+					}
+					if (name != null)
+					{
+						names.Add(name);
+					}
+				}
+			}
+			return names;
+		}
+
+		// Optional persistent store (enabled with -Dikvm.vfs.cachedir=<dir>) for the generated class stubs
+		// and class listings. The files are named after a hash of their key, which includes the MVIDs
+		// of the assemblies they were generated from (and of the runtime that generated them), so a
+		// rebuilt assembly gets new entries. The key of a stub also includes the MVIDs of the assemblies
+		// that are referenced by the defining assembly, because the stub depends on the Java names of the
+		// types it refers to, but types that those assemblies forward on to yet other assemblies are not
+		// covered, so the cache directory should be cleared when such an assembly is replaced.
+		private static class VfsCache
+		{
+			private static readonly string dir = GetCacheDirectory();
+
+			private static string GetCacheDirectory()
+			{
+				string dir = java.lang.Props.props.getProperty("ikvm.vfs.cachedir");
+				if (dir != null)
+				{
+					try
+					{
+						System.IO.Directory.CreateDirectory(dir);
+					}
+					catch
+					{
+						return null;
+					}
+				}
+				return dir;
+			}
+
+			private static string GetPath(string key, string extension)
+			{
+				byte[] hash;
+				using (System.Security.Cryptography.SHA1 sha1 = System.Security.Cryptography.SHA1.Create())
+				{
+					hash = sha1.ComputeHash(System.Text.Encoding.UTF8.GetBytes(key));
+				}
+				System.Text.StringBuilder sb = new System.Text.StringBuilder(hash.Length * 2 + extension.Length);
+				foreach (byte b in hash)
+				{
+					sb.Append(b.ToString("x2"));
+				}
+				sb.Append(extension);
+				return System.IO.Path.Combine(dir, sb.ToString());
+			}
+
+			private static string RuntimeVersionKey
+			{
+				get { return typeof(VirtualFileSystem).Assembly.ManifestModule.ModuleVersionId.ToString("N"); }
+			}
+
+			internal static string GetStubKey(TypeWrapper tw, bool includeNonPublicInterfaces)
+			{
+				if (dir == null)
+				{
+					return null;
+				}
+				string dependencies = GetDependencyKey(tw.TypeAsBaseType.Assembly);
+				if (dependencies == null)
+				{
+					return null;
+				}
+				return "stub:" + RuntimeVersionKey + ":" + tw.TypeAsBaseType.Module.ModuleVersionId.ToString("N") + dependencies + ":" + tw.Name + ":" + includeNonPublicInterfaces;
+			}
+
+			private static readonly Dictionary<Assembly, string> dependencyKeys = new Dictionary<Assembly, string>();
+
+			// the base type, interfaces, member signatures and generic type arguments of a type can only refer
+			// to types in the assembly itself or in the assemblies it references
+			private static string GetDependencyKey(Assembly asm)
+			{
+				string key;
+				lock (dependencyKeys)
+				{
+					if (dependencyKeys.TryGetValue(asm, out key))
+					{
+						return key;
+					}
+				}
+				try
+				{
+					System.Text.StringBuilder sb = new System.Text.StringBuilder();
+					foreach (AssemblyName name in asm.GetReferencedAssemblies())
+					{
+						sb.Append(':').Append(Assembly.Load(name).ManifestModule.ModuleVersionId.ToString("N"));
+					}
+					key = sb.ToString();
+				}
+				catch
+				{
+					// if a referenced assembly can't be loaded, the stubs of this assembly aren't cached
+					key = null;
+				}
+				lock (dependencyKeys)
+				{
+					dependencyKeys[asm] = key;
+				}
+				return key;
+			}
+
+			internal static string GetListingKey(Assembly[] assemblies)
+			{
+				if (dir == null)
+				{
+					return null;
+				}
+				System.Text.StringBuilder sb = new System.Text.StringBuilder("classes:").Append(RuntimeVersionKey);
+				foreach (Assembly asm in assemblies)
+				{
+					sb.Append(':').Append(asm.ManifestModule.ModuleVersionId.ToString("N"));
+				}
+				return sb.ToString();
+			}
+
+			internal static byte[] Read(string key, string extension)
+			{
+				if (key == null)
+				{
+					return null;
+				}
+				try
+				{
+					string path = GetPath(key, extension);
+					if (System.IO.File.Exists(path))
+					{
+						return System.IO.File.ReadAllBytes(path);
+					}
+				}
+				catch
+				{
+				}
+				return null;
+			}
+
+			internal static void Write(string key, string extension, byte[] data)
+			{
+				if (key == null)
+				{
+					return;
+				}
+				try
+				{
+					string path = GetPath(key, extension);
+					if (!System.IO.File.Exists(path))
+					{
+						// write to a temporary file first, so that readers never see a partial file
+						string tmp = path + "." + Guid.NewGuid().ToString("N") + ".tmp";
+						System.IO.File.WriteAllBytes(tmp, data);
+						try
+						{
+							System.IO.File.Move(tmp, path);
+						}
+						catch
+						{
+							// another process won the race
+							System.IO.File.Delete(tmp);
+						}
+					}
+				}
+				catch
+				{
+				}
+			}
+
+			internal static ICollection<string> ReadListing(string key)
+			{
+				byte[] data = Read(key, ".lst");
+				if (data == null)
+				{
+					return null;
+				}
+				string text = System.Text.Encoding.UTF8.GetString(data);
+				return text.Length == 0 ? new string[0] : text.Split('\n');
+			}
+
+			internal static void WriteListing(string key, ICollection<string> names)
+			{
+				if (key != null)
+				{
+					Write(key, ".lst", System.Text.Encoding.UTF8.GetBytes(String.Join("\n", new List<string>(names).ToArray())));
+				}
+			}
+		}
+
 		private sealed class VfsAssemblyClass : VfsFile
 		{
 			private readonly TypeWrapper tw;
@@ -575,10 +786,17 @@ namespace IKVM.Internal
 #if !FIRST_PASS
 				if (buf == null)
 				{
-					System.IO.MemoryStream mem = new System.IO.MemoryStream();
 					bool includeNonPublicInterfaces = !"true".Equals(java.lang.Props.props.getProperty("ikvm.stubgen.skipNonPublicInterfaces"), StringComparison.OrdinalIgnoreCase);
-					IKVM.StubGen.StubGenerator.WriteClass(mem, tw, includeNonPublicInterfaces, false, false, true);
-					buf = mem.ToArray();
+					string cacheKey = VfsCache.GetStubKey(tw, includeNonPublicInterfaces);
+					byte[] data = VfsCache.Read(cacheKey, ".class");
+					if (data == null)
+					{
+						System.IO.MemoryStream mem = new System.IO.MemoryStream();
+						IKVM.StubGen.StubGenerator.WriteClass(mem, tw, includeNonPublicInterfaces, false, false, true);
+						data = mem.ToArray();
+						VfsCache.Write(cacheKey, ".class", data);
+					}
+					buf = data;
 				}
 #endif
 			}
@@ -478,6 +478,17 @@ namespace IKVM.Internal
 			return null;
 #else
 			return java.nio.DirectByteBuffer.__new(address, capacity);
+#endif
+		}
+
+		// helper for JNI (which doesn't have access to core library internals),
+		// reads a system property without a security check
+		internal static string GetSystemProperty(string name)
+		{
+#if FIRST_PASS
+			return null;
+#else
+			return java.lang.Props.props.getProperty(name);
 #endif
 		}
 #endif
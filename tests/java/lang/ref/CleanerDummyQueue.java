@@ -0,0 +1,67 @@
+/*
+  Copyright (C) 2026 IKVM.NET contributors
+
+  This software is provided 'as-is', without any express or implied
+  warranty.  In no event will the authors be held liable for any damages
+  arising from the use of this software.
+
+  Permission is granted to anyone to use this software for any purpose,
+  including commercial applications, and to alter it and redistribute it
+  freely, subject to the following restrictions:
+
+  1. The origin of this software must not be misrepresented; you must not
+     claim that you wrote the original software. If you use this software
+     in a product, an acknowledgment in the product documentation would be
+     appreciated but is not required.
+  2. Altered source versions must be plainly marked as such, and must not be
+     misrepresented as being the original software.
+  3. This notice may not be removed or altered from any source distribution.
+
+*/
+
+/*
+ * @test
+ * @summary Cleaners of dropped direct buffers must not end up on Cleaner's
+ *          dummy queue, which is never polled and would retain them forever
+ * @run main/othervm CleanerDummyQueue
+ */
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+public class CleanerDummyQueue
+{
+    private static final int ROUNDS = 20;
+    private static final int BUFFERS_PER_ROUND = 10000;
+
+    public static void main(String[] args) throws Exception
+    {
+        Field field = Class.forName("sun.misc.Cleaner").getDeclaredField("dummyQueue");
+        field.setAccessible(true);
+        ReferenceQueue<?> dummyQueue = (ReferenceQueue<?>) field.get(null);
+
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            for (int i = 0; i < BUFFERS_PER_ROUND; i++)
+            {
+                ByteBuffer.allocateDirect(16);
+            }
+            System.gc();
+            System.runFinalization();
+        }
+        System.gc();
+        System.runFinalization();
+
+        int enqueued = 0;
+        while (dummyQueue.poll() != null)
+        {
+            enqueued++;
+        }
+        if (enqueued != 0)
+        {
+            throw new RuntimeException(enqueued + " of " + (ROUNDS * BUFFERS_PER_ROUND)
+                + " Cleaners were enqueued on the dummy queue");
+        }
+    }
+}